@@ -0,0 +1,60 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.File;
+
+/**
+ * Locates the android.jar of installed SDK platforms for the benchmarks.
+ * The SDK is given with the system property {@code android.sdk}.
+ * @author Michael Kober
+ *
+ */
+public final class BenchmarkPlatforms {
+
+	private BenchmarkPlatforms() {
+	}
+
+	/**
+	 * Get the android.jar of a platform.
+	 * @param platform platform directory name, e.g. {@code android-3}
+	 * @return android.jar
+	 * @throws IllegalStateException if the platform is not installed
+	 */
+	public static File androidJar(String platform) {
+		String sdk = System.getProperty("android.sdk");
+		if (sdk == null) {
+			throw new IllegalStateException("System property android.sdk is not set");
+		}
+		File jar = new File(new File(new File(sdk, "platforms"), platform), AndroidClasspath.ANDROID_JAR);
+		if (!jar.isFile()) {
+			throw new IllegalStateException("Platform not installed: " + jar);
+		}
+		return jar;
+	}
+
+	/**
+	 * Create an empty temporary directory.
+	 * @param prefix name prefix
+	 * @return directory
+	 */
+	public static File createTempDir(String prefix) {
+		File dir = new File(System.getProperty("java.io.tmpdir"), prefix + System.nanoTime());
+		dir.mkdirs();
+		dir.deleteOnExit();
+		return dir;
+	}
+}
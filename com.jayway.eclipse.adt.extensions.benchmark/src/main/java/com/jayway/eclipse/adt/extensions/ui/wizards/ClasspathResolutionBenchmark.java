@@ -0,0 +1,66 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Classpath resolution, measured separately from the jar scan. Resolving
+ * the JDT classpath itself needs a workbench, so this measures the headless
+ * part: finding the android.jar in resolved classpaths of different sizes.
+ * @author Michael Kober
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClasspathResolutionBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int entries;
+
+	private String[] classpath;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		classpath = new String[entries];
+		for (int i = 0; i < entries - 1; i++) {
+			classpath[i] = "/workspace/project" + i + "/bin";
+		}
+		classpath[entries - 1] = "/sdk/platforms/android-8/android.jar";
+	}
+
+	@Benchmark
+	public String findAndroidJar() {
+		return AndroidClasspath.findAndroidJar(classpath);
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per keystroke cost of the {@link ConstantSearchIndex} compared to the
+ * linear case insensitive scan of ElementListSelectionDialog, over synthetic
+ * constants in the style of intent actions.
+ * @author Michael Kober
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConstantSearchBenchmark {
+
+	private static final int LIMIT = 500;
+
+	@Param({ "1000", "10000", "50000" })
+	public int size;
+
+	@Param({ "br", "brow", "browsable", "act" })
+	public String query;
+
+	private List<String> values;
+	private ConstantSearchIndex index;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		values = new ArrayList<String>(size);
+		values.add("android.intent.category.BROWSABLE");
+		Random random = new Random(42);
+		String[] kinds = { "action", "category", "permission", "extra" };
+		while (values.size() < size) {
+			StringBuilder name = new StringBuilder("android.");
+			name.append(kinds[random.nextInt(kinds.length)]).append('.');
+			for (int i = 0; i < 12; i++) {
+				name.append(i % 5 == 4 ? '_' : (char) ('A' + random.nextInt(26)));
+			}
+			values.add(name.toString());
+		}
+		index = new ConstantSearchIndex(values);
+	}
+
+	@Benchmark
+	public List<String> index() {
+		return index.search(query, LIMIT);
+	}
+
+	@Benchmark
+	public List<String> linearScan() {
+		String lower = query.toLowerCase();
+		List<String> result = new ArrayList<String>();
+		for (String value : values) {
+			if (value.toLowerCase().indexOf(lower) >= 0 && result.size() < LIMIT) {
+				result.add(value);
+			}
+		}
+		return result;
+	}
+
+	@Benchmark
+	public ConstantSearchIndex build() {
+		return new ConstantSearchIndex(values);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Warm timings of the ways to get the Intent constants of an android.jar:
+ * reflection through a URLClassLoader, the class file reader, and the
+ * memory and disk levels of the {@link IntentConstantsCache}.
+ * @author Michael Kober
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntentConstantsBenchmark {
+
+	/** Platform directory, set to all installed platforms by the build. */
+	@Param({ "android-3" })
+	public String platform;
+
+	private File androidJar;
+	private File cacheDir;
+	private IntentConstantsCache memoryCache;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		androidJar = BenchmarkPlatforms.androidJar(platform);
+		memoryCache = new IntentConstantsCache(null);
+		memoryCache.get(androidJar);
+		cacheDir = BenchmarkPlatforms.createTempDir("intent-cache");
+		new IntentConstantsCache(cacheDir).get(androidJar);
+	}
+
+	@Benchmark
+	public IntentConstants reflection() throws Exception {
+		return ReflectionIntentConstantsReader.read(androidJar);
+	}
+
+	@Benchmark
+	public IntentConstants classFile() throws IOException {
+		return IntentConstants.read(androidJar);
+	}
+
+	@Benchmark
+	public IntentConstants cacheMemoryHit() throws IOException {
+		return memoryCache.get(androidJar);
+	}
+
+	@Benchmark
+	public IntentConstants cacheDiskHit() throws IOException {
+		return new IntentConstantsCache(cacheDir).get(androidJar);
+	}
+}
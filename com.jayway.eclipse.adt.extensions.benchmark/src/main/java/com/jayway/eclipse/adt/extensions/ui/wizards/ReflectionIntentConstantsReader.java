@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Baseline for the benchmarks: the original way of reading the Intent
+ * constants, loading and initializing android.content.Intent with a new
+ * URLClassLoader that is never closed.
+ * @author Michael Kober
+ *
+ */
+public final class ReflectionIntentConstantsReader {
+
+	private static final String ACTION_PREFIX = "ACTION_";
+	private static final String CATEGORY_PREFIX = "CATEGORY_";
+
+	private ReflectionIntentConstantsReader() {
+	}
+
+	/**
+	 * Read categories and actions via reflection.
+	 * @param androidJar the android.jar
+	 * @return intent constants
+	 * @throws Exception if the Intent class can not be loaded
+	 */
+	public static IntentConstants read(File androidJar) throws Exception {
+		Set<String> categories = new TreeSet<String>();
+		Set<String> actions = new TreeSet<String>();
+		ClassLoader classLoader = ReflectionIntentConstantsReader.class.getClassLoader();
+		URL[] urls = new URL[] { androidJar.toURI().toURL() };
+		URLClassLoader urlCL = new URLClassLoader(urls, classLoader);
+		Class<?> intent = Class.forName("android.content.Intent", true, urlCL);
+		Field[] declaredFields = intent.getDeclaredFields();
+		for (Field field : declaredFields) {
+			if (field.getName().startsWith(CATEGORY_PREFIX)) {
+				categories.add((String) field.get(null));
+			} else if (field.getName().startsWith(ACTION_PREFIX)) {
+				actions.add((String) field.get(null));
+			}
+		}
+		return new IntentConstants(actions, categories);
+	}
+}
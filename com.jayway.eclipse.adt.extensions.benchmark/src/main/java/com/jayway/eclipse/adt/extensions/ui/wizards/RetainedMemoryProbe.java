@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+
+/**
+ * Simulates N wizard opens with one way of reading the Intent constants and
+ * reports what is retained afterwards: used heap, metaspace (or perm gen)
+ * and loaded classes after a full GC. Run once per strategy in a fresh JVM,
+ * see the retainedMemory task of the build.
+ * <p>
+ * Usage: {@code RetainedMemoryProbe <reflection|classFile|cache> <opens> <result.json> <platform>...}
+ * @author Michael Kober
+ *
+ */
+public final class RetainedMemoryProbe {
+
+	/** Helpers created per wizard open, one in init and one in createControl. */
+	private static final int READS_PER_OPEN = 2;
+
+	private RetainedMemoryProbe() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		String strategy = args[0];
+		int opens = Integer.parseInt(args[1]);
+		File result = new File(args[2]);
+		File[] jars = new File[args.length - 3];
+		for (int i = 0; i < jars.length; i++) {
+			jars[i] = BenchmarkPlatforms.androidJar(args[i + 3]);
+		}
+
+		long heapBefore = retainedHeap();
+		long metaspaceBefore = metaspace();
+		int classesBefore = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+
+		IntentConstantsCache cache = new IntentConstantsCache(null);
+		long start = System.nanoTime();
+		for (int open = 0; open < opens; open++) {
+			for (File jar : jars) {
+				for (int i = 0; i < READS_PER_OPEN; i++) {
+					read(strategy, jar, cache);
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+
+		long heap = retainedHeap() - heapBefore;
+		long metaspace = metaspace() - metaspaceBefore;
+		int classes = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount() - classesBefore;
+
+		Writer out = new FileWriter(result);
+		try {
+			out.write("{\"strategy\":\"" + strategy + "\",\"opens\":" + opens + ",\"platforms\":" + jars.length
+					+ ",\"elapsedMillis\":" + elapsed / 1000000 + ",\"retainedHeapBytes\":" + heap
+					+ ",\"retainedMetaspaceBytes\":" + metaspace + ",\"retainedClasses\":" + classes + "}\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	private static IntentConstants read(String strategy, File jar, IntentConstantsCache cache) throws Exception {
+		if ("reflection".equals(strategy)) {
+			return ReflectionIntentConstantsReader.read(jar);
+		} else if ("classFile".equals(strategy)) {
+			return IntentConstants.read(jar);
+		} else if ("cache".equals(strategy)) {
+			return cache.get(jar);
+		}
+		throw new IllegalArgumentException("Unknown strategy " + strategy);
+	}
+
+	private static long retainedHeap() {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long metaspace() {
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			String name = pool.getName();
+			if (name.contains("Metaspace") || name.contains("Perm Gen")) {
+				used += pool.getUsage().getUsed();
+			}
+		}
+		return used;
+	}
+}
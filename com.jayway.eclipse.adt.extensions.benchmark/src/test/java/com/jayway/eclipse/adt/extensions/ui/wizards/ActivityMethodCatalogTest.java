@@ -0,0 +1,122 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Testclass for ActivityMethodCatalog, reads an android.jar compiled from
+ * stub sources.
+ * @author Michael Kober
+ *
+ */
+public class ActivityMethodCatalogTest {
+
+	private static final String[][] SOURCES = {
+		{"android/os/Bundle", "package android.os; public class Bundle {}"},
+		{"android/content/Context", "package android.content; public abstract class Context {"
+				+ " protected void onTrimMemory(int level) {} public void onLowMemory() {} }"},
+		{"android/view/ContextThemeWrapper", "package android.view;"
+				+ " public class ContextThemeWrapper extends android.content.Context {"
+				+ " public final void onTrimMemory(int level) {} }"},
+		{"android/app/Activity", "package android.app;"
+				+ " public class Activity extends android.view.ContextThemeWrapper {"
+				+ " protected void onCreate(android.os.Bundle state) {} public final void onFinal() {}"
+				+ " protected static void onStatic() {} }"},
+	};
+
+	private static ActivityMethodCatalog catalog;
+
+	@BeforeClass
+	public static void readCatalog() throws IOException {
+		File dir = BenchmarkPlatforms.createTempDir("activity-stubs");
+		List<String> arguments = new ArrayList<String>();
+		arguments.add("-d");
+		arguments.add(dir.getPath());
+		for (String[] source : SOURCES) {
+			File file = new File(dir, source[0] + ".java");
+			file.getParentFile().mkdirs();
+			Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+			try {
+				writer.write(source[1]);
+			} finally {
+				writer.close();
+			}
+			arguments.add(file.getPath());
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])));
+
+		File jar = new File(dir, AndroidClasspath.ANDROID_JAR);
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		try {
+			for (String[] source : SOURCES) {
+				out.putNextEntry(new ZipEntry(source[0] + ".class"));
+				InputStream in = new FileInputStream(new File(dir, source[0] + ".class"));
+				try {
+					byte[] buffer = new byte[4096];
+					for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+						out.write(buffer, 0, n);
+					}
+				} finally {
+					in.close();
+				}
+			}
+		} finally {
+			out.close();
+		}
+		catalog = ActivityMethodCatalog.read(jar);
+	}
+
+	@Test
+	public void readsCallbacksOfTheWholeHierarchy() {
+		assertNotNull(catalog.find(ActivityMethod.ON_CREATE));
+		assertNotNull(catalog.find("onLowMemory"));
+		assertEquals(ActivityMethod.ON_CREATE, catalog.getMethods().get(0).getName());
+	}
+
+	@Test
+	public void skipsFinalAndStaticMethods() {
+		assertNull(catalog.find("onFinal"));
+		assertNull(catalog.find("onStatic"));
+	}
+
+	@Test
+	public void skipsMethodsMadeFinalInASubclass() {
+		assertNull(catalog.find("onTrimMemory"));
+		assertEquals(2, catalog.getMethods().size());
+	}
+}
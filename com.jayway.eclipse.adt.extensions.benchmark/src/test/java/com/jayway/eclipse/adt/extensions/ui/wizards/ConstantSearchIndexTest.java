@@ -0,0 +1,73 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Testclass for ConstantSearchIndex.
+ * @author Michael Kober
+ *
+ */
+public class ConstantSearchIndexTest {
+
+	private static final List<String> CONSTANTS = Arrays.asList(
+			"android.intent.action.MAIN",
+			"android.intent.action.VIEW",
+			"android.intent.action.BOOT_COMPLETED",
+			"android.intent.category.LAUNCHER",
+			"android.intent.category.BROWSABLE",
+			"android.intent.category.DEFAULT");
+
+	private final ConstantSearchIndex index = new ConstantSearchIndex(CONSTANTS);
+
+	@Test
+	public void ranksSubstringMatchFirst() {
+		List<String> result = index.search("brow", 10);
+		assertEquals("android.intent.category.BROWSABLE", result.get(0));
+	}
+
+	@Test
+	public void matchesShortQueriesAsSegmentPrefix() {
+		assertEquals(Arrays.asList("android.intent.action.VIEW"), index.search("vi", 10));
+		assertEquals(Arrays.asList("android.intent.action.BOOT_COMPLETED"), index.search("co", 10));
+	}
+
+	@Test
+	public void ignoresCase() {
+		assertEquals(index.search("launcher", 10), index.search("LaUnChEr", 10));
+		assertEquals("android.intent.category.LAUNCHER", index.search("LAUNCH", 10).get(0));
+	}
+
+	@Test
+	public void findsNothingForUnknownQuery() {
+		assertTrue(index.search("xyzzy", 10).isEmpty());
+		assertTrue(index.search("q", 10).isEmpty());
+	}
+
+	@Test
+	public void limitsResults() {
+		assertEquals(2, index.search("android", 2).size());
+		assertEquals(2, index.search("", 2).size());
+		assertEquals(CONSTANTS, index.search("", CONSTANTS.size()));
+	}
+}
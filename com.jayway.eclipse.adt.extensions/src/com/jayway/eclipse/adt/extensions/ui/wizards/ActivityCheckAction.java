@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.dialogs.ErrorDialog;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.IObjectActionDelegate;
+import org.eclipse.ui.IWorkbenchPart;
+
+/**
+ * Popup toggle on projects, adds the {@link ActivityCheckBuilder} to the
+ * project or removes it.
+ * @author Michael Kober
+ *
+ */
+public class ActivityCheckAction implements IObjectActionDelegate {
+
+	private IWorkbenchPart part = null;
+	private IProject project = null;
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IObjectActionDelegate#setActivePart(org.eclipse.jface.action.IAction, org.eclipse.ui.IWorkbenchPart)
+	 */
+	public void setActivePart(IAction action, IWorkbenchPart targetPart) {
+		part = targetPart;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IActionDelegate#selectionChanged(org.eclipse.jface.action.IAction, org.eclipse.jface.viewers.ISelection)
+	 */
+	public void selectionChanged(IAction action, ISelection selection) {
+		project = null;
+		if (selection instanceof IStructuredSelection) {
+			Object element = ((IStructuredSelection) selection).getFirstElement();
+			if (element instanceof IProject) {
+				project = (IProject) element;
+			} else if (element instanceof IAdaptable) {
+				project = (IProject) ((IAdaptable) element).getAdapter(IProject.class);
+			}
+		}
+		boolean enabled = false;
+		if (project != null && project.isOpen()) {
+			try {
+				enabled = ActivityCheckBuilder.isEnabled(project);
+			} catch (CoreException e) {
+				project = null;
+			}
+		} else {
+			project = null;
+		}
+		action.setEnabled(project != null);
+		action.setChecked(enabled);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IActionDelegate#run(org.eclipse.jface.action.IAction)
+	 */
+	public void run(IAction action) {
+		if (project == null) {
+			return;
+		}
+		try {
+			ActivityCheckBuilder.setEnabled(project, action.isChecked());
+		} catch (CoreException e) {
+			ErrorDialog.openError(part.getSite().getShell(), "Check Activities",
+					"Could not change the builders of " + project.getName(), e.getStatus());
+		}
+	}
+}
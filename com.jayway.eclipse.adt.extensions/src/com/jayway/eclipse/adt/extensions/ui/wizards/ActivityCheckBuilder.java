@@ -0,0 +1,319 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+
+import com.jayway.eclipse.adt.xml.ManifestTape;
+
+/**
+ * Builder that flags activities missing in AndroidManifest.xml and manifest
+ * entries without activity class. The {@link ActivityIndex} of the project
+ * is kept between builds, an incremental build only indexes the source
+ * files of the resource delta and reads the manifest only if it changed.
+ * Markers are only rewritten on files whose findings changed.
+ * @author Michael Kober
+ *
+ */
+public class ActivityCheckBuilder extends IncrementalProjectBuilder {
+
+	/** Id of the builder. */
+	public static final String BUILDER_ID = ImageConstants.ID + ".activityCheckBuilder";
+	/** Type of the problem markers of the builder. */
+	public static final String MARKER_TYPE = ImageConstants.ID + ".activityProblem";
+	/** Marker attribute with the fully qualified name of an undeclared activity. */
+	public static final String ATTRIBUTE_ACTIVITY = "activity";
+
+	private static final String MANIFEST_FILE = "AndroidManifest.xml";
+	private static final String CLASSPATH_FILE = ".classpath";
+
+	private ActivityIndex index = null;
+	private boolean declarationsRead = false;
+	private final Map<IPath, Set<String>> undeclared = new HashMap<IPath, Set<String>>();
+	private Map<String, Integer> stale = Collections.emptyMap();
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.IncrementalProjectBuilder#build(int, java.util.Map, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected IProject[] build(int kind, Map args, IProgressMonitor monitor) throws CoreException {
+		IProject project = getProject();
+		if (!project.hasNature(JavaCore.NATURE_ID)) {
+			return null;
+		}
+		Probes.Probe probe = Probes.start(Probes.Phase.ACTIVITY_CHECK);
+		try {
+			IResourceDelta delta = kind == FULL_BUILD || index == null ? null : getDelta(project);
+			if (delta == null || !incrementalBuild(delta, monitor)) {
+				fullBuild(monitor);
+			}
+		} finally {
+			Probes.end(probe);
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.IncrementalProjectBuilder#clean(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected void clean(IProgressMonitor monitor) throws CoreException {
+		index = null;
+		declarationsRead = false;
+		undeclared.clear();
+		stale = Collections.emptyMap();
+		getProject().deleteMarkers(MARKER_TYPE, false, IResource.DEPTH_INFINITE);
+	}
+
+	private void fullBuild(IProgressMonitor monitor) throws CoreException {
+		clean(monitor);
+		IJavaProject javaProject = JavaCore.create(getProject());
+		index = new ActivityIndex(javaProject);
+		for (IPackageFragmentRoot root : javaProject.getPackageFragmentRoots()) {
+			if (root.getKind() != IPackageFragmentRoot.K_SOURCE) {
+				continue;
+			}
+			for (IJavaElement child : root.getChildren()) {
+				for (ICompilationUnit unit : ((IPackageFragment) child).getCompilationUnits()) {
+					checkCanceled(monitor);
+					index.index(unit.getPath(), unit);
+				}
+			}
+		}
+		readManifest();
+		updateMarkers(index.getFiles(), true);
+	}
+
+	/**
+	 * @return false if a full build is needed
+	 */
+	private boolean incrementalBuild(IResourceDelta delta, final IProgressMonitor monitor) throws CoreException {
+		final IJavaProject javaProject = JavaCore.create(getProject());
+		final Set<IPath> changed = new HashSet<IPath>();
+		final boolean[] manifestChanged = { false };
+		final boolean[] classpathChanged = { false };
+		delta.accept(new IResourceDeltaVisitor() {
+			public boolean visit(IResourceDelta child) throws CoreException {
+				IResource resource = child.getResource();
+				if (resource.getType() != IResource.FILE) {
+					return true;
+				}
+				if (child.getKind() == IResourceDelta.CHANGED && (child.getFlags() & IResourceDelta.CONTENT) == 0) {
+					return false;
+				}
+				boolean projectFile = resource.getParent().equals(getProject());
+				if (projectFile && MANIFEST_FILE.equals(resource.getName())) {
+					manifestChanged[0] = true;
+				} else if (projectFile && CLASSPATH_FILE.equals(resource.getName())) {
+					classpathChanged[0] = true;
+				} else if ("java".equals(resource.getFileExtension())) {
+					checkCanceled(monitor);
+					IPath path = resource.getFullPath();
+					IJavaElement element = child.getKind() == IResourceDelta.REMOVED ? null : JavaCore
+							.create((IFile) resource);
+					if (element instanceof ICompilationUnit && javaProject.isOnClasspath(element)) {
+						index.index(path, (ICompilationUnit) element);
+						changed.add(path);
+					} else if (index.getFiles().contains(path)) {
+						index.remove(path);
+						changed.add(path);
+					}
+				}
+				return false;
+			}
+		});
+		if (classpathChanged[0]) {
+			return false;
+		}
+		if (manifestChanged[0]) {
+			readManifest();
+		}
+		if (manifestChanged[0] || !changed.isEmpty()) {
+			updateMarkers(changed, manifestChanged[0]);
+		}
+		return true;
+	}
+
+	/**
+	 * Read the declared activities, a manifest that can not be read keeps the
+	 * previous declarations. Nothing is flagged until a manifest was read.
+	 */
+	private void readManifest() {
+		IFile file = getProject().getFile(MANIFEST_FILE);
+		Map<String, Integer> declared = new LinkedHashMap<String, Integer>();
+		if (file.exists()) {
+			try {
+				ManifestTape tape = new WorkspaceManifestStore(file).read().tape();
+				for (int element : tape.activityElements()) {
+					String name = tape.qualify(tape.androidName(element));
+					if (name != null) {
+						declared.put(name, Integer.valueOf(tape.line(element)));
+					}
+				}
+			} catch (IOException e) {
+				return;
+			}
+		}
+		index.setDeclared(declared);
+		declarationsRead = true;
+	}
+
+	/**
+	 * Evaluate all indexed files, superclasses and declarations of other
+	 * files may have changed, but only touch the markers of changed files
+	 * and of files with changed findings.
+	 * @param changed files whose markers are rewritten if they have findings
+	 * @param manifestChanged true if the manifest markers have to be checked
+	 */
+	private void updateMarkers(Set<IPath> changed, boolean manifestChanged) throws CoreException {
+		if (!declarationsRead) {
+			return;
+		}
+		Set<IPath> paths = new HashSet<IPath>(undeclared.keySet());
+		paths.addAll(index.getFiles());
+		for (IPath path : paths) {
+			List<ActivityIndex.TypeEntry> entries = index.getUndeclared(path);
+			Set<String> names = new HashSet<String>();
+			for (ActivityIndex.TypeEntry entry : entries) {
+				names.add(entry.getName());
+			}
+			Set<String> previous = undeclared.get(path);
+			if (previous == null) {
+				previous = Collections.emptySet();
+			}
+			if (names.equals(previous) && (names.isEmpty() || !changed.contains(path))) {
+				continue;
+			}
+			IFile file = getProject().getWorkspace().getRoot().getFile(path);
+			if (file.exists()) {
+				file.deleteMarkers(MARKER_TYPE, false, IResource.DEPTH_ZERO);
+				for (ActivityIndex.TypeEntry entry : entries) {
+					createUndeclaredMarker(file, entry);
+				}
+			}
+			if (names.isEmpty()) {
+				undeclared.remove(path);
+			} else {
+				undeclared.put(path, names);
+			}
+		}
+		if (manifestChanged || !changed.isEmpty()) {
+			Map<String, Integer> found = index.getStale();
+			IFile manifest = getProject().getFile(MANIFEST_FILE);
+			if ((manifestChanged || !found.equals(stale)) && manifest.exists()) {
+				manifest.deleteMarkers(MARKER_TYPE, false, IResource.DEPTH_ZERO);
+				for (Map.Entry<String, Integer> entry : found.entrySet()) {
+					createStaleMarker(manifest, entry.getKey(), entry.getValue().intValue());
+				}
+			}
+			stale = found;
+		}
+	}
+
+	private static void createUndeclaredMarker(IFile file, ActivityIndex.TypeEntry entry) throws CoreException {
+		IMarker marker = file.createMarker(MARKER_TYPE);
+		marker.setAttributes(new String[] { IMarker.MESSAGE, IMarker.SEVERITY, IMarker.CHAR_START, IMarker.CHAR_END,
+				ATTRIBUTE_ACTIVITY }, new Object[] {
+				"Activity " + entry.getName() + " is not declared in " + MANIFEST_FILE,
+				Integer.valueOf(IMarker.SEVERITY_WARNING), Integer.valueOf(entry.getNameOffset()),
+				Integer.valueOf(entry.getNameOffset() + entry.getNameLength()), entry.getName() });
+	}
+
+	private static void createStaleMarker(IFile manifest, String name, int line) throws CoreException {
+		IMarker marker = manifest.createMarker(MARKER_TYPE);
+		marker.setAttributes(new String[] { IMarker.MESSAGE, IMarker.SEVERITY, IMarker.LINE_NUMBER },
+				new Object[] { "Activity class " + name + " does not exist",
+						Integer.valueOf(IMarker.SEVERITY_WARNING), Integer.valueOf(line) });
+	}
+
+	private static void checkCanceled(IProgressMonitor monitor) {
+		if (monitor != null && monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+	}
+
+	/**
+	 * Check if the builder is in the build spec of a project.
+	 * @param project project
+	 * @return true if the activities of the project are checked
+	 * @throws CoreException if the project description can not be read
+	 */
+	public static boolean isEnabled(IProject project) throws CoreException {
+		for (ICommand command : project.getDescription().getBuildSpec()) {
+			if (BUILDER_ID.equals(command.getBuilderName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add the builder to or remove it from the build spec of a project.
+	 * @param project project
+	 * @param enabled true to check the activities of the project
+	 * @throws CoreException if the project description can not be changed
+	 */
+	public static void setEnabled(IProject project, boolean enabled) throws CoreException {
+		if (isEnabled(project) == enabled) {
+			return;
+		}
+		IProjectDescription description = project.getDescription();
+		List<ICommand> commands = new ArrayList<ICommand>();
+		for (ICommand command : description.getBuildSpec()) {
+			if (!BUILDER_ID.equals(command.getBuilderName())) {
+				commands.add(command);
+			}
+		}
+		if (enabled) {
+			ICommand command = description.newCommand();
+			command.setBuilderName(BUILDER_ID);
+			commands.add(command);
+		}
+		description.setBuildSpec(commands.toArray(new ICommand[commands.size()]));
+		project.setDescription(description, null);
+		if (!enabled) {
+			project.deleteMarkers(MARKER_TYPE, false, IResource.DEPTH_INFINITE);
+		}
+	}
+}
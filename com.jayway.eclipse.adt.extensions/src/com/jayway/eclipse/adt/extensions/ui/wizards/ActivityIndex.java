@@ -0,0 +1,273 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.ISourceRange;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Index of the top level types of the source files of a project and of the
+ * activities declared in its manifest. Files are indexed one at a time, so
+ * a build only reads the files of the resource delta. Whether a type is an
+ * activity is decided on the superclass names in the index, only
+ * superclasses outside of the sources, e.g. {@code android.app.ListActivity},
+ * are looked up in the Java model, once per index.
+ * @author Michael Kober
+ *
+ */
+public class ActivityIndex {
+
+	/** Base class of all activities. */
+	public static final String ACTIVITY = "android.app.Activity";
+
+	private final IJavaProject javaProject;
+	private final Map<IPath, List<TypeEntry>> files = new HashMap<IPath, List<TypeEntry>>();
+	private final Map<String, TypeEntry> types = new HashMap<String, TypeEntry>();
+	private final Map<String, Boolean> externalTypes = new HashMap<String, Boolean>();
+	private final Map<String, Integer> declared = new LinkedHashMap<String, Integer>();
+
+	/**
+	 * Constructor.
+	 * @param javaProject project to index
+	 */
+	public ActivityIndex(IJavaProject javaProject) {
+		this.javaProject = javaProject;
+	}
+
+	/**
+	 * Index the top level types of a source file, replacing its old entries.
+	 * @param path workspace path of the file
+	 * @param unit compilation unit of the file
+	 * @throws JavaModelException if the file can not be parsed
+	 */
+	public void index(IPath path, ICompilationUnit unit) throws JavaModelException {
+		remove(path);
+		List<TypeEntry> entries = new ArrayList<TypeEntry>();
+		for (IType type : unit.getTypes()) {
+			if (!type.isClass()) {
+				continue;
+			}
+			ISourceRange range = type.getNameRange();
+			TypeEntry entry = new TypeEntry(path, type.getFullyQualifiedName(), resolve(type),
+					Flags.isAbstract(type.getFlags()), range.getOffset(), range.getLength());
+			entries.add(entry);
+			types.put(entry.name, entry);
+		}
+		files.put(path, entries);
+	}
+
+	/**
+	 * Remove the types of a source file.
+	 * @param path workspace path of the file
+	 */
+	public void remove(IPath path) {
+		List<TypeEntry> entries = files.remove(path);
+		if (entries != null) {
+			for (TypeEntry entry : entries) {
+				if (types.get(entry.name) == entry) {
+					types.remove(entry.name);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Set the activities declared in the manifest.
+	 * @param activities fully qualified activity names mapped to the line of their declaration
+	 */
+	public void setDeclared(Map<String, Integer> activities) {
+		declared.clear();
+		declared.putAll(activities);
+	}
+
+	/**
+	 * @return workspace paths of all indexed source files
+	 */
+	public Set<IPath> getFiles() {
+		return Collections.unmodifiableSet(files.keySet());
+	}
+
+	/**
+	 * Get the concrete activities of a source file that the manifest does
+	 * not declare.
+	 * @param path workspace path of the file
+	 * @return undeclared activities
+	 */
+	public List<TypeEntry> getUndeclared(IPath path) {
+		List<TypeEntry> entries = files.get(path);
+		if (entries == null) {
+			return Collections.emptyList();
+		}
+		List<TypeEntry> result = new ArrayList<TypeEntry>();
+		for (TypeEntry entry : entries) {
+			if (!entry.isAbstract && !declared.containsKey(entry.name) && isActivity(entry.name)) {
+				result.add(entry);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the activities declared in the manifest whose class does not exist
+	 * in the sources nor on the classpath of the project.
+	 * @return fully qualified activity names mapped to the line of their declaration
+	 */
+	public Map<String, Integer> getStale() {
+		Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+		for (Map.Entry<String, Integer> entry : declared.entrySet()) {
+			String name = entry.getKey();
+			if (!types.containsKey(name) && findExternal(name) == null) {
+				result.put(name, entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Check if a type extends {@value #ACTIVITY}, following the superclasses
+	 * through the index.
+	 * @param name fully qualified type name
+	 * @return true for activities
+	 */
+	public boolean isActivity(String name) {
+		Set<String> seen = new HashSet<String>();
+		while (name != null && seen.add(name)) {
+			if (ACTIVITY.equals(name)) {
+				return true;
+			}
+			TypeEntry entry = types.get(name);
+			if (entry == null) {
+				return isExternalActivity(name);
+			}
+			name = entry.superclass;
+		}
+		return false;
+	}
+
+	private boolean isExternalActivity(String name) {
+		Boolean activity = externalTypes.get(name);
+		if (activity == null) {
+			activity = Boolean.FALSE;
+			IType type = findExternal(name);
+			if (type != null) {
+				try {
+					ITypeHierarchy hierarchy = type.newSupertypeHierarchy(null);
+					for (IType superclass : hierarchy.getAllSuperclasses(type)) {
+						if (ACTIVITY.equals(superclass.getFullyQualifiedName())) {
+							activity = Boolean.TRUE;
+							break;
+						}
+					}
+				} catch (JavaModelException e) {
+					// not resolvable, not an activity
+				}
+			}
+			externalTypes.put(name, activity);
+		}
+		return activity.booleanValue();
+	}
+
+	private IType findExternal(String name) {
+		try {
+			return javaProject.findType(name.replace('$', '.'));
+		} catch (JavaModelException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Resolve the superclass name as written in the source.
+	 */
+	private static String resolve(IType type) throws JavaModelException {
+		String superclass = type.getSuperclassName();
+		if (superclass == null) {
+			return null;
+		}
+		int typeArguments = superclass.indexOf('<');
+		if (typeArguments >= 0) {
+			superclass = superclass.substring(0, typeArguments);
+		}
+		String[][] resolved = type.resolveType(superclass);
+		if (resolved == null || resolved.length == 0) {
+			return superclass;
+		}
+		return resolved[0][0].length() == 0 ? resolved[0][1] : resolved[0][0] + "." + resolved[0][1];
+	}
+
+	/**
+	 * Top level class of a source file.
+	 */
+	public static final class TypeEntry {
+		private final IPath path;
+		private final String name;
+		private final String superclass;
+		private final boolean isAbstract;
+		private final int nameOffset;
+		private final int nameLength;
+
+		TypeEntry(IPath path, String name, String superclass, boolean isAbstract, int nameOffset, int nameLength) {
+			this.path = path;
+			this.name = name;
+			this.superclass = superclass;
+			this.isAbstract = isAbstract;
+			this.nameOffset = nameOffset;
+			this.nameLength = nameLength;
+		}
+
+		/**
+		 * @return workspace path of the source file
+		 */
+		public IPath getPath() {
+			return path;
+		}
+
+		/**
+		 * @return fully qualified name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return offset of the type name in the source file
+		 */
+		public int getNameOffset() {
+			return nameOffset;
+		}
+
+		/**
+		 * @return length of the type name
+		 */
+		public int getNameLength() {
+			return nameLength;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.ui.IMarkerResolution;
+import org.eclipse.ui.IMarkerResolutionGenerator2;
+import org.eclipse.ui.views.markers.WorkbenchMarkerResolution;
+
+import com.jayway.eclipse.adt.xml.ActivitySpec;
+
+/**
+ * Quick fix for the activities flagged by the {@link ActivityCheckBuilder}:
+ * declares them in the manifest the way the wizard does. Several selected
+ * activities of a project are declared with one manifest update.
+ * @author Michael Kober
+ *
+ */
+public class ActivityMarkerResolutionGenerator implements IMarkerResolutionGenerator2 {
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IMarkerResolutionGenerator2#hasResolutions(org.eclipse.core.resources.IMarker)
+	 */
+	public boolean hasResolutions(IMarker marker) {
+		return getActivity(marker) != null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IMarkerResolutionGenerator#getResolutions(org.eclipse.core.resources.IMarker)
+	 */
+	public IMarkerResolution[] getResolutions(IMarker marker) {
+		if (!hasResolutions(marker)) {
+			return new IMarkerResolution[0];
+		}
+		return new IMarkerResolution[] { new DeclareActivityResolution(marker) };
+	}
+
+	private static String getActivity(IMarker marker) {
+		return marker.getAttribute(ActivityCheckBuilder.ATTRIBUTE_ACTIVITY, null);
+	}
+
+	/**
+	 * Adds the activities of the markers to the manifest of their project.
+	 */
+	private static final class DeclareActivityResolution extends WorkbenchMarkerResolution {
+		private final IMarker marker;
+
+		DeclareActivityResolution(IMarker marker) {
+			this.marker = marker;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.ui.IMarkerResolution#getLabel()
+		 */
+		public String getLabel() {
+			return "Declare activity in AndroidManifest.xml";
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.ui.IMarkerResolution2#getDescription()
+		 */
+		public String getDescription() {
+			return "Adds an activity element for " + getActivity(marker) + " to the manifest of the project.";
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.ui.IMarkerResolution2#getImage()
+		 */
+		public Image getImage() {
+			return null;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.ui.views.markers.WorkbenchMarkerResolution#findOtherMarkers(org.eclipse.core.resources.IMarker[])
+		 */
+		@Override
+		public IMarker[] findOtherMarkers(IMarker[] markers) {
+			List<IMarker> others = new ArrayList<IMarker>();
+			IProject project = marker.getResource().getProject();
+			for (IMarker other : markers) {
+				if (!other.equals(marker) && getActivity(other) != null
+						&& project.equals(other.getResource().getProject())) {
+					others.add(other);
+				}
+			}
+			return others.toArray(new IMarker[others.size()]);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.ui.IMarkerResolution#run(org.eclipse.core.resources.IMarker)
+		 */
+		public void run(IMarker selected) {
+			run(new IMarker[] { selected }, null);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.ui.views.markers.WorkbenchMarkerResolution#run(org.eclipse.core.resources.IMarker[], org.eclipse.core.runtime.IProgressMonitor)
+		 */
+		@Override
+		public void run(IMarker[] markers, IProgressMonitor monitor) {
+			Set<String> none = Collections.emptySet();
+			List<ActivitySpec> activities = new ArrayList<ActivitySpec>();
+			for (IMarker selected : markers) {
+				String activity = getActivity(selected);
+				if (activity != null) {
+					activities.add(AndroidManifestFile.createSpec(activity, none, none));
+				}
+			}
+			if (!activities.isEmpty()) {
+				IProject project = markers[0].getResource().getProject();
+				new ManifestUpdateJob(new AndroidManifestFile(project), activities).schedule();
+			}
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Overridable method of android.app.Activity, described by its bytecode
+ * descriptor. Parameter and return types are given as qualified source
+ * names, e.g. {@code android.os.Bundle} or {@code int[]}.
+ * @author Michael Kober
+ *
+ */
+public final class ActivityMethod {
+
+	/** Name of the method every new activity overrides. */
+	public static final String ON_CREATE = "onCreate";
+	/** Descriptor of onCreate(Bundle). */
+	public static final String ON_CREATE_DESCRIPTOR = "(Landroid/os/Bundle;)V";
+
+	private final int access;
+	private final String name;
+	private final String descriptor;
+	private final List<String> parameterTypes;
+	private final String returnType;
+
+	/**
+	 * Constructor.
+	 * @param access access flags
+	 * @param name method name
+	 * @param descriptor method descriptor, e.g. {@code (Landroid/os/Bundle;)V}
+	 */
+	public ActivityMethod(int access, String name, String descriptor) {
+		this.access = access;
+		this.name = name;
+		this.descriptor = descriptor;
+		List<String> types = new ArrayList<String>();
+		int[] position = {1};
+		while (descriptor.charAt(position[0]) != ')') {
+			types.add(parseType(descriptor, position));
+		}
+		position[0]++;
+		this.parameterTypes = Collections.unmodifiableList(types);
+		this.returnType = parseType(descriptor, position);
+	}
+
+	/**
+	 * @return method name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return method descriptor
+	 */
+	public String getDescriptor() {
+		return descriptor;
+	}
+
+	/**
+	 * @return qualified parameter type names
+	 */
+	public List<String> getParameterTypes() {
+		return parameterTypes;
+	}
+
+	/**
+	 * @return qualified return type name, "void" for none
+	 */
+	public String getReturnType() {
+		return returnType;
+	}
+
+	/**
+	 * @return true if the method is public, otherwise it is protected
+	 */
+	public boolean isPublic() {
+		return Modifier.isPublic(access);
+	}
+
+	/**
+	 * @return true for onCreate(Bundle), which is always generated
+	 */
+	public boolean isOnCreate() {
+		return ON_CREATE.equals(name) && ON_CREATE_DESCRIPTOR.equals(descriptor);
+	}
+
+	/**
+	 * @return label with simple parameter type names, e.g. {@code onSaveInstanceState(Bundle)}
+	 */
+	public String getLabel() {
+		StringBuilder buf = new StringBuilder(name).append('(');
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			if (i > 0) {
+				buf.append(", ");
+			}
+			buf.append(simpleName(parameterTypes.get(i)));
+		}
+		return buf.append(')').toString();
+	}
+
+	/**
+	 * @return label with qualified parameter type names, as used in javadoc references
+	 */
+	public String getReference() {
+		StringBuilder buf = new StringBuilder(name).append('(');
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			if (i > 0) {
+				buf.append(", ");
+			}
+			buf.append(parameterTypes.get(i));
+		}
+		return buf.append(')').toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof ActivityMethod)) {
+			return false;
+		}
+		ActivityMethod other = (ActivityMethod) obj;
+		return name.equals(other.name) && descriptor.equals(other.descriptor);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return name.hashCode() * 31 + descriptor.hashCode();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return getLabel();
+	}
+
+	/**
+	 * @param qualifiedName qualified type name
+	 * @return type name without package and enclosing types
+	 */
+	static String simpleName(String qualifiedName) {
+		return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+	}
+
+	private static String parseType(String descriptor, int[] position) {
+		char c = descriptor.charAt(position[0]++);
+		switch (c) {
+		case 'B':
+			return "byte";
+		case 'C':
+			return "char";
+		case 'D':
+			return "double";
+		case 'F':
+			return "float";
+		case 'I':
+			return "int";
+		case 'J':
+			return "long";
+		case 'S':
+			return "short";
+		case 'Z':
+			return "boolean";
+		case 'V':
+			return "void";
+		case '[':
+			return parseType(descriptor, position) + "[]";
+		case 'L':
+			int end = descriptor.indexOf(';', position[0]);
+			String type = descriptor.substring(position[0], end).replace('/', '.').replace('$', '.');
+			position[0] = end + 1;
+			return type;
+		default:
+			throw new IllegalArgumentException("Invalid descriptor " + descriptor);
+		}
+	}
+}
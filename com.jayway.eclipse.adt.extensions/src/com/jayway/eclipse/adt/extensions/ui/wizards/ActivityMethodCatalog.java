@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+/**
+ * Catalog of the callback methods a new activity can override, i.e. the
+ * non-final, non-static {@code on*} methods of android.app.Activity and its
+ * super classes. The catalog is read from the class files of the
+ * android.jar, without loading classes, and computed once per jar.
+ * @author Michael Kober
+ *
+ */
+public final class ActivityMethodCatalog {
+
+	private static final String ACTIVITY_CLASS = "android/app/Activity";
+	private static final String OBJECT_CLASS = "java/lang/Object";
+	private static final String CALLBACK_PREFIX = "on";
+	private static final int EXCLUDED_ACCESS = Modifier.PRIVATE | Modifier.STATIC | Modifier.FINAL
+			| 0x0040 /* bridge */ | 0x1000 /* synthetic */;
+
+	/**
+	 * Catalog of a missing or unreadable android.jar, with the lifecycle
+	 * methods every API level has.
+	 */
+	public static final ActivityMethodCatalog DEFAULT = new ActivityMethodCatalog(defaultMethods());
+
+	private static final Map<String, ActivityMethodCatalog> catalogs = new HashMap<String, ActivityMethodCatalog>();
+
+	private final List<ActivityMethod> methods;
+
+	private ActivityMethodCatalog(List<ActivityMethod> methods) {
+		this.methods = Collections.unmodifiableList(methods);
+	}
+
+	private static List<ActivityMethod> defaultMethods() {
+		List<ActivityMethod> methods = new ArrayList<ActivityMethod>();
+		methods.add(new ActivityMethod(Modifier.PROTECTED, ActivityMethod.ON_CREATE, ActivityMethod.ON_CREATE_DESCRIPTOR));
+		for (String lifecycle : new String[] {"onStart", "onRestart", "onResume", "onPause", "onStop", "onDestroy"}) {
+			methods.add(new ActivityMethod(Modifier.PROTECTED, lifecycle, "()V"));
+		}
+		return methods;
+	}
+
+	/**
+	 * Get the catalog of the given android.jar, read on first use and kept
+	 * until the jar changes.
+	 * @param androidJar the android.jar
+	 * @return catalog, shared and immutable
+	 * @throws IOException if the jar can not be read
+	 */
+	public static ActivityMethodCatalog get(File androidJar) throws IOException {
+		String key = androidJar.getAbsolutePath() + '|' + androidJar.length() + '|' + androidJar.lastModified();
+		synchronized (catalogs) {
+			ActivityMethodCatalog catalog = catalogs.get(key);
+			if (catalog == null) {
+				Probes.Probe probe = Probes.start(Probes.Phase.JAR_SCAN);
+				try {
+					catalog = read(androidJar);
+				} finally {
+					Probes.end(probe);
+				}
+				catalogs.put(key, catalog);
+			}
+			return catalog;
+		}
+	}
+
+	/**
+	 * Read the catalog from the class files of the given android.jar.
+	 * @param androidJar the android.jar
+	 * @return catalog
+	 * @throws IOException if the Activity class can not be read
+	 */
+	static ActivityMethodCatalog read(File androidJar) throws IOException {
+		Set<ActivityMethod> methods = new LinkedHashSet<ActivityMethod>();
+		Set<String> declared = new HashSet<String>();
+		ZipFile jar = new ZipFile(androidJar);
+		try {
+			String className = ACTIVITY_CLASS;
+			while (className != null && !OBJECT_CLASS.equals(className)) {
+				ClassFileReader reader = ClassFileReader.read(jar, className);
+				if (reader == null) {
+					if (ACTIVITY_CLASS.equals(className)) {
+						throw new IOException("No " + ACTIVITY_CLASS + " in " + androidJar);
+					}
+					break;
+				}
+				for (ClassFileReader.MethodInfo method : reader.getMethods()) {
+					// methods of sub classes come first and hide the overridden ones,
+					// also if they are final, static or private
+					if (declared.add(method.getName() + method.getDescriptor()) && isCallback(method)) {
+						methods.add(new ActivityMethod(method.getAccess(), method.getName(), method.getDescriptor()));
+					}
+				}
+				className = reader.getSuperClassName();
+			}
+		} finally {
+			jar.close();
+		}
+		return new ActivityMethodCatalog(new ArrayList<ActivityMethod>(methods));
+	}
+
+	private static boolean isCallback(ClassFileReader.MethodInfo method) {
+		int access = method.getAccess();
+		return method.getName().startsWith(CALLBACK_PREFIX)
+				&& (access & EXCLUDED_ACCESS) == 0
+				&& (access & (Modifier.PUBLIC | Modifier.PROTECTED)) != 0;
+	}
+
+	/**
+	 * @return overridable methods, those of android.app.Activity first
+	 */
+	public List<ActivityMethod> getMethods() {
+		return methods;
+	}
+
+	/**
+	 * Find a method by name, preferring the variant with the fewest parameters.
+	 * @param name method name
+	 * @return method or null if the catalog has none with that name
+	 */
+	public ActivityMethod find(String name) {
+		ActivityMethod result = null;
+		for (ActivityMethod method : methods) {
+			if (method.getName().equals(name)
+					&& (result == null || method.getParameterTypes().size() < result.getParameterTypes().size())) {
+				result = method;
+			}
+		}
+		return result;
+	}
+}
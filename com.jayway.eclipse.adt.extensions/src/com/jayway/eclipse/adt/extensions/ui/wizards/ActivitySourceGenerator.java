@@ -0,0 +1,235 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates the source of new activities.
+ * @author Michael Kober
+ *
+ */
+public final class ActivitySourceGenerator {
+
+	private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList("class", "enum", "interface",
+			"package", "default", "new", "this", "super"));
+
+	/**
+	 * Maps qualified type names to the names used in the source, e.g. by
+	 * adding an import.
+	 */
+	public interface TypeNameResolver {
+		/**
+		 * @param qualifiedName qualified type name, without array dimensions
+		 * @return name to use in the source
+		 */
+		String resolve(String qualifiedName);
+	}
+
+	private ActivitySourceGenerator() {
+	}
+
+	/**
+	 * Generate a complete compilation unit for an activity with onCreate and
+	 * the given callbacks.
+	 * @param packageName package of the activity
+	 * @param typeName simple name of the activity
+	 * @param methods callbacks to override besides onCreate
+	 * @param lineDelim line delimiter
+	 * @return source of the compilation unit
+	 */
+	public static String compilationUnit(String packageName, String typeName, Collection<ActivityMethod> methods,
+			String lineDelim) {
+		ImportCollector imports = new ImportCollector(packageName);
+		StringBuilder members = new StringBuilder();
+		appendIndented(members, onCreate(imports.resolve("android.os.Bundle"), "", lineDelim), lineDelim);
+		for (ActivityMethod method : methods) {
+			if (!method.isOnCreate()) {
+				members.append(lineDelim);
+				appendIndented(members, override(method, imports, "", lineDelim), lineDelim);
+			}
+		}
+		String superClass = imports.resolve("android.app.Activity");
+
+		StringBuilder buf = new StringBuilder();
+		if (packageName.length() > 0) {
+			buf.append("package ").append(packageName).append(";").append(lineDelim);
+			buf.append(lineDelim);
+		}
+		for (String qualifiedName : imports.getImports()) {
+			buf.append("import ").append(qualifiedName).append(";").append(lineDelim);
+		}
+		buf.append(lineDelim);
+		buf.append("public class ").append(typeName).append(" extends ").append(superClass).append(" {").append(lineDelim);
+		buf.append(lineDelim);
+		buf.append(members);
+		buf.append("}").append(lineDelim);
+		return buf.toString();
+	}
+
+	/**
+	 * Generate the onCreate method.
+	 * @param bundleType type name to use for android.os.Bundle
+	 * @param content additional body content, may be empty
+	 * @param lineDelim line delimiter
+	 * @return method source
+	 */
+	public static String onCreate(String bundleType, String content, String lineDelim) {
+		StringBuilder buf = new StringBuilder();
+		buf.append("/* (non-Javadoc)").append(lineDelim);
+		buf.append(" * @see android.app.Activity#onCreate(android.os.Bundle)").append(lineDelim);
+		buf.append(" */").append(lineDelim);
+		buf.append("@Override").append(lineDelim);
+		buf.append("public void onCreate(").append(bundleType).append(" savedInstanceState) {").append(lineDelim);
+		buf.append("\tsuper.onCreate(savedInstanceState);").append(lineDelim);
+		appendContent(buf, content, lineDelim);
+		buf.append("}").append(lineDelim);
+		return buf.toString();
+	}
+
+	/**
+	 * Generate an override of a callback, calling the super implementation.
+	 * @param method method to override
+	 * @param types resolves the parameter and return types
+	 * @param content additional body content, may be empty
+	 * @param lineDelim line delimiter
+	 * @return method source
+	 */
+	public static String override(ActivityMethod method, TypeNameResolver types, String content, String lineDelim) {
+		List<String> names = parameterNames(method.getParameterTypes());
+		StringBuilder parameters = new StringBuilder();
+		StringBuilder arguments = new StringBuilder();
+		for (int i = 0; i < names.size(); i++) {
+			if (i > 0) {
+				parameters.append(", ");
+				arguments.append(", ");
+			}
+			parameters.append(typeName(method.getParameterTypes().get(i), types)).append(' ').append(names.get(i));
+			arguments.append(names.get(i));
+		}
+		String call = "super." + method.getName() + "(" + arguments + ");";
+		boolean isVoid = "void".equals(method.getReturnType());
+
+		StringBuilder buf = new StringBuilder();
+		buf.append("/* (non-Javadoc)").append(lineDelim);
+		buf.append(" * @see android.app.Activity#").append(method.getReference()).append(lineDelim);
+		buf.append(" */").append(lineDelim);
+		buf.append("@Override").append(lineDelim);
+		buf.append(method.isPublic() ? "public " : "protected ");
+		buf.append(typeName(method.getReturnType(), types)).append(' ').append(method.getName());
+		buf.append('(').append(parameters).append(") {").append(lineDelim);
+		if (isVoid) {
+			buf.append('\t').append(call).append(lineDelim);
+			appendContent(buf, content, lineDelim);
+		} else {
+			appendContent(buf, content, lineDelim);
+			buf.append("\treturn ").append(call).append(lineDelim);
+		}
+		buf.append("}").append(lineDelim);
+		return buf.toString();
+	}
+
+	private static String typeName(String qualifiedName, TypeNameResolver types) {
+		int dimensions = qualifiedName.indexOf('[');
+		String elementType = dimensions < 0 ? qualifiedName : qualifiedName.substring(0, dimensions);
+		String suffix = dimensions < 0 ? "" : qualifiedName.substring(dimensions);
+		if (elementType.indexOf('.') < 0) {
+			return qualifiedName; // primitive
+		}
+		return types.resolve(elementType) + suffix;
+	}
+
+	/**
+	 * Derive parameter names from the types, e.g. {@code menu} for Menu,
+	 * {@code arg0} for primitives.
+	 */
+	private static List<String> parameterNames(List<String> parameterTypes) {
+		List<String> names = new ArrayList<String>();
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			String type = parameterTypes.get(i);
+			String name;
+			if (type.indexOf('.') < 0) {
+				name = "arg" + i;
+			} else {
+				String simpleName = ActivityMethod.simpleName(type.replace("[]", ""));
+				name = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+				if (type.endsWith("[]")) {
+					name += "s";
+				}
+			}
+			Integer count = counts.get(name);
+			counts.put(name, count == null ? 1 : count + 1);
+			if (count != null || KEYWORDS.contains(name)) {
+				name += (count == null ? 0 : count);
+			}
+			names.add(name);
+		}
+		return names;
+	}
+
+	private static void appendContent(StringBuilder buf, String content, String lineDelim) {
+		if (content != null && content.length() != 0) {
+			buf.append("\t").append(content).append(lineDelim);
+		}
+	}
+
+	private static void appendIndented(StringBuilder buf, String source, String lineDelim) {
+		for (String line : source.split(lineDelim)) {
+			buf.append("\t").append(line).append(lineDelim);
+		}
+	}
+
+	/**
+	 * Collects the imports of a new compilation unit. A simple name is only
+	 * imported once, other types with the same simple name are qualified.
+	 */
+	private static final class ImportCollector implements TypeNameResolver {
+		private final String packageName;
+		private final Map<String, String> bySimpleName = new HashMap<String, String>();
+		private final Set<String> imports = new TreeSet<String>();
+
+		ImportCollector(String packageName) {
+			this.packageName = packageName;
+		}
+
+		public String resolve(String qualifiedName) {
+			String simpleName = ActivityMethod.simpleName(qualifiedName);
+			String known = bySimpleName.get(simpleName);
+			if (known == null) {
+				bySimpleName.put(simpleName, qualifiedName);
+				if (!qualifiedName.equals("java.lang." + simpleName)
+						&& !qualifiedName.equals(packageName + "." + simpleName)) {
+					imports.add(qualifiedName);
+				}
+				return simpleName;
+			}
+			return known.equals(qualifiedName) ? simpleName : qualifiedName;
+		}
+
+		Set<String> getImports() {
+			return imports;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+/**
+ * Workbench independent helpers for the classpath of Android projects.
+ * @author Michael Kober
+ *
+ */
+public final class AndroidClasspath {
+
+	/** File name of the Android platform library. */
+	public static final String ANDROID_JAR = "android.jar";
+
+	/** ID of the classpath container of the Android platform library. */
+	public static final String CONTAINER_ID = "com.android.ide.eclipse.adt.ANDROID_FRAMEWORK";
+
+	private AndroidClasspath() {
+	}
+
+	/**
+	 * Find the android.jar in the given classpath entries.
+	 * @param classpathEntries resolved classpath entries
+	 * @return first entry containing the android.jar or null if not found
+	 */
+	public static String findAndroidJar(String[] classpathEntries) {
+		for (String entry : classpathEntries) {
+			if (entry.contains(ANDROID_JAR)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.launching.JavaRuntime;
+
+/**
+ * Finds the android.jar of a project and keeps it per project until the
+ * classpath of the project changes. Only the Android classpath container is
+ * resolved, the runtime classpath of the project and its dependencies is
+ * only computed for projects without the container.
+ * @author Michael Kober
+ *
+ */
+public class AndroidJarResolver implements IElementChangedListener {
+
+	private static final int CLASSPATH_FLAGS = IJavaElementDelta.F_CLOSED
+			| IJavaElementDelta.F_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED;
+
+	private static AndroidJarResolver instance = null;
+
+	private final Map<IJavaProject, String> jars = new HashMap<IJavaProject, String>();
+
+	/**
+	 * Get the shared resolver, registered as element change listener on first use.
+	 * @return workspace wide resolver
+	 */
+	public static synchronized AndroidJarResolver getDefault() {
+		if (instance == null) {
+			instance = new AndroidJarResolver();
+			JavaCore.addElementChangedListener(instance, ElementChangedEvent.POST_CHANGE);
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the android.jar of the given project.
+	 * @param javaProject project
+	 * @return path of the android.jar or null if the classpath has none
+	 * @throws CoreException if the classpath can not be resolved
+	 */
+	public String find(IJavaProject javaProject) throws CoreException {
+		synchronized (jars) {
+			String jar = jars.get(javaProject);
+			if (jar != null) {
+				return jar;
+			}
+		}
+		String jar;
+		Probes.Probe probe = Probes.start(Probes.Phase.CLASSPATH_RESOLUTION);
+		try {
+			jar = resolve(javaProject);
+		} finally {
+			Probes.end(probe);
+		}
+		if (jar != null) {
+			synchronized (jars) {
+				jars.put(javaProject, jar);
+			}
+		}
+		return jar;
+	}
+
+	/**
+	 * Drop all entries.
+	 */
+	public void clear() {
+		synchronized (jars) {
+			jars.clear();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jdt.core.IElementChangedListener#elementChanged(org.eclipse.jdt.core.ElementChangedEvent)
+	 */
+	public void elementChanged(ElementChangedEvent event) {
+		synchronized (jars) {
+			if (jars.isEmpty()) {
+				return;
+			}
+			for (IJavaElementDelta delta : event.getDelta().getAffectedChildren()) {
+				IJavaElement element = delta.getElement();
+				if (element.getElementType() == IJavaElement.JAVA_PROJECT
+						&& (delta.getKind() == IJavaElementDelta.REMOVED || (delta.getFlags() & CLASSPATH_FLAGS) != 0)) {
+					jars.remove(element);
+				}
+			}
+		}
+	}
+
+	private static String resolve(IJavaProject javaProject) throws CoreException {
+		IClasspathEntry[] rawClasspath = javaProject.getRawClasspath();
+		for (IClasspathEntry entry : rawClasspath) {
+			if (isAndroidContainer(entry)) {
+				String jar = findInContainer(javaProject, entry);
+				if (jar != null) {
+					return jar;
+				}
+			}
+		}
+		return AndroidClasspath.findAndroidJar(getJavaClasspath(javaProject, rawClasspath));
+	}
+
+	private static boolean isAndroidContainer(IClasspathEntry entry) {
+		return entry.getEntryKind() == IClasspathEntry.CPE_CONTAINER
+				&& AndroidClasspath.CONTAINER_ID.equals(entry.getPath().segment(0));
+	}
+
+	private static String findInContainer(IJavaProject javaProject, IClasspathEntry entry) throws CoreException {
+		IClasspathContainer container = JavaCore.getClasspathContainer(entry.getPath(), javaProject);
+		if (container == null) {
+			return null;
+		}
+		IClasspathEntry[] entries = container.getClasspathEntries();
+		String[] paths = new String[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			paths[i] = entries[i].getPath().toOSString();
+		}
+		return AndroidClasspath.findAndroidJar(paths);
+	}
+
+	/**
+	 * Get all classpathentries for the given project, for projects without
+	 * the Android container.
+	 * @param javaProject project to get the classpath for.
+	 * @param rawClasspath raw classpath of the project
+	 * @return classpathentries
+	 */
+	private static String[] getJavaClasspath(IJavaProject javaProject, IClasspathEntry[] rawClasspath)
+			throws CoreException {
+		List<String> classPath = new ArrayList<String>();
+		String[] defaultClassPath = JavaRuntime
+				.computeDefaultRuntimeClassPath(javaProject);
+		classPath.addAll(Arrays.asList(defaultClassPath));
+
+		// add CPE_CONTAINER classpathes
+		for (IClasspathEntry entry : rawClasspath) {
+			if (entry.getEntryKind() == IClasspathEntry.CPE_CONTAINER) {
+				IClasspathContainer classpathContainer = JavaCore
+						.getClasspathContainer(entry.getPath(), javaProject);
+				if (classpathContainer != null) {
+					IClasspathEntry[] classpathEntries = classpathContainer
+							.getClasspathEntries();
+					for (IClasspathEntry cEntry : classpathEntries) {
+						classPath.add(cEntry.getPath().toOSString());
+					}
+				}
+			}
+		}
+		return classPath.toArray(new String[] {});
+	}
+}
@@ -15,7 +15,9 @@
  */
 package com.jayway.eclipse.adt.extensions.ui.wizards;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -23,11 +25,15 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 
-import com.jayway.eclipse.adt.xml.AndroidManifest;
+import com.jayway.eclipse.adt.xml.ActivitySpec;
+import com.jayway.eclipse.adt.xml.AddActivitiesEdit;
+import com.jayway.eclipse.adt.xml.ManifestSnapshot;
+import com.jayway.eclipse.adt.xml.ManifestStore;
 
 /**
  * Facade for the manifest file manipulation. 
@@ -48,40 +54,102 @@ public class AndroidManifestFile {
 	}
 	
 	/**
-	 * Get the location of the android manifest file.
-	 * @return manifest location as IPath
+	 * Get the android manifest file.
+	 * @return manifest file or null if the project has none
 	 */
-	private IPath getManifestLocation() {
+	public IFile getManifestFile() {
 		boolean resourceFound = ((resource != null) && ((resource.exists())) && (resource instanceof IFile));
-		return resourceFound ? ((IFile) resource).getLocation() : null;
+		return resourceFound ? (IFile) resource : null;
+	}
+	
+	/**
+	 * Get the parsed manifest, shared through the {@link ManifestModelCache}.
+	 * @return immutable snapshot of the manifest or null if the project has no manifest
+	 * @throws IOException if the manifest can not be read
+	 */
+	public ManifestSnapshot getManifest() throws IOException {
+		IFile file = getManifestFile();
+		return file != null ? ManifestModelCache.getDefault().get(file) : null;
 	}
 
 	/**
-	 * Update the Android manifest.
+	 * Update the Android manifest. The activity is spliced into the file in
+	 * place, keeping its formatting and comments.
 	 * @param activityName name of the new activity
 	 * @param actions intent actions
 	 * @param categories intent categories
 	 * @throws CoreException 
 	 */
 	public void update(String activityName, Set<String> actions, Set<String> categories) throws CoreException {
-		IPath path = getManifestLocation();
-		if (path != null) {
-			AndroidManifest manifest = new AndroidManifest(path.toOSString());
-			manifest.addActivity(activityName, asArray(actions), asArray(categories));
-			manifest.save();
-			resource.refreshLocal(0, null);
+		updateAll(Collections.singletonList(createSpec(activityName, actions, categories)));
+	}
+	
+	/**
+	 * Update the Android manifest with several activities at once. The file
+	 * is written only once for all activities, activities the manifest
+	 * already declares are skipped.
+	 * @param activities activities to add
+	 * @throws CoreException 
+	 */
+	public void updateAll(List<ActivitySpec> activities) throws CoreException {
+		updateAll(activities, null);
+	}
+	
+	/**
+	 * Update the Android manifest with several activities at once, see
+	 * {@link #updateAll(List)}. The activities are added to a snapshot of
+	 * the manifest without locking it, the commit writes the snapshot only
+	 * if the file was not changed in the meantime and otherwise adds the
+	 * activities again to the changed file. The committed snapshot replaces
+	 * the cached one, so the manifest is not parsed again. The update can
+	 * be cancelled until the commit.
+	 * @param activities activities to add
+	 * @param monitor progress monitor, may be null
+	 * @throws CoreException 
+	 * @throws OperationCanceledException if cancelled before the commit
+	 */
+	public void updateAll(List<ActivitySpec> activities, IProgressMonitor monitor) throws CoreException {
+		IFile file = getManifestFile();
+		if (file != null) {
+			ManifestStore store = new WorkspaceManifestStore(file);
+			Probes.Probe probe = Probes.start(Probes.Phase.MANIFEST_INSERT);
+			try {
+				ManifestSnapshot snapshot = store.read().edit(
+						new AddActivitiesEdit(activities.toArray(new ActivitySpec[activities.size()])));
+				if (monitor != null && monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				ManifestModelCache.getDefault().updated(file, store.commit(snapshot));
+			} catch (IOException e) {
+				Probes.failed(Probes.Phase.MANIFEST_INSERT, e);
+				Status status = new Status(IStatus.ERROR, "com.jayway.adt.extensions", e.getMessage(), e);
+				throw new CoreException(status);
+			} finally {
+				Probes.end(probe);
+			}
 		} else {
 			Status status = new Status(IStatus.ERROR, "com.jayway.adt.extensions", "Could not find Android manifest file.");
 			throw new CoreException(status);
 		}
 	}
 	
+	/**
+	 * Create the description of an activity for {@link #updateAll(List)}.
+	 * @param activityName name of the new activity
+	 * @param actions intent actions
+	 * @param categories intent categories
+	 * @return activity spec
+	 */
+	public static ActivitySpec createSpec(String activityName, Set<String> actions, Set<String> categories) {
+		return new ActivitySpec(activityName, asArray(actions), asArray(categories));
+	}
+	
 	/**
 	 * helper method.
 	 * @param set set of intents or categories
 	 * @return set as array
 	 */
-	private String[] asArray(Set<String> set) {
+	private static String[] asArray(Set<String> set) {
 		List<String> list = new ArrayList<String>();
 		for (String entry : set) {
 			list.add(entry);
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import com.jayway.eclipse.adt.xml.ActivitySpec;
+
+/**
+ * Creates all activities of a {@link ScaffoldSpec} in one workspace
+ * operation, so resource deltas and auto builds are coalesced, and adds them
+ * to the manifest with a single write at the end.
+ * @author Michael Kober
+ *
+ */
+public class BulkActivityScaffolder implements IWorkspaceRunnable {
+
+	private static final String LINE_DELIMITER = System.getProperty("line.separator", "\n");
+
+	private final IJavaProject javaProject;
+	private final ScaffoldSpec spec;
+	private final List<ICompilationUnit> created = new ArrayList<ICompilationUnit>();
+
+	/**
+	 * Constructor.
+	 * @param javaProject project to create the activities in
+	 * @param spec activities to create
+	 */
+	public BulkActivityScaffolder(IJavaProject javaProject, ScaffoldSpec spec) {
+		this.javaProject = javaProject;
+		this.spec = spec;
+	}
+
+	/**
+	 * Run as one workspace operation, locking the project.
+	 * @param monitor progress monitor, may be null
+	 * @throws CoreException 
+	 */
+	public void scaffold(IProgressMonitor monitor) throws CoreException {
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.run(this, javaProject.getProject(), IWorkspace.AVOID_UPDATE, monitor);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.IWorkspaceRunnable#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	public void run(IProgressMonitor monitor) throws CoreException {
+		if (monitor == null) {
+			monitor = new NullProgressMonitor();
+		}
+		List<ScaffoldSpec.Entry> entries = spec.getEntries();
+		monitor.beginTask("Creating activities", entries.size() + 2);
+		try {
+			// resolve all callbacks first, so a bad spec creates nothing
+			ActivityMethodCatalog catalog = new IntentReflectionHelper(javaProject).getActivityMethods();
+			List<List<ActivityMethod>> methods = new ArrayList<List<ActivityMethod>>();
+			for (ScaffoldSpec.Entry entry : entries) {
+				methods.add(getMethods(catalog, entry));
+			}
+			IPackageFragment fragment = getSourceFolder().createPackageFragment(spec.getPackageName(), true,
+					new SubProgressMonitor(monitor, 1));
+			List<ActivitySpec> activities = new ArrayList<ActivitySpec>();
+			for (int i = 0; i < entries.size(); i++) {
+				ScaffoldSpec.Entry entry = entries.get(i);
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				monitor.subTask(entry.getName());
+				ICompilationUnit unit = fragment.getCompilationUnit(entry.getName() + ".java");
+				if (!unit.exists()) {
+					Probes.Probe probe = Probes.start(Probes.Phase.CODE_GENERATION);
+					try {
+						String source = ActivitySourceGenerator.compilationUnit(spec.getPackageName(),
+								entry.getName(), methods.get(i), LINE_DELIMITER);
+						created.add(fragment.createCompilationUnit(unit.getElementName(), source, false, null));
+					} finally {
+						Probes.end(probe);
+					}
+				}
+				activities.add(entry.toActivitySpec(spec.getPackageName()));
+				monitor.worked(1);
+			}
+			new AndroidManifestFile(javaProject.getProject()).updateAll(activities,
+					new SubProgressMonitor(monitor, 1));
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * @return compilation units created by the last run, existing ones are not
+	 * overwritten
+	 */
+	public List<ICompilationUnit> getCreatedUnits() {
+		return created;
+	}
+
+	private static List<ActivityMethod> getMethods(ActivityMethodCatalog catalog, ScaffoldSpec.Entry entry)
+			throws CoreException {
+		List<ActivityMethod> methods = new ArrayList<ActivityMethod>();
+		for (String stub : entry.getStubs()) {
+			ActivityMethod method = catalog.find(stub);
+			if (method == null) {
+				throw new CoreException(new Status(IStatus.ERROR, ImageConstants.ID,
+						entry.getName() + ": android.app.Activity has no method " + stub));
+			}
+			methods.add(method);
+		}
+		return methods;
+	}
+
+	private IPackageFragmentRoot getSourceFolder() throws CoreException {
+		for (IPackageFragmentRoot root : javaProject.getPackageFragmentRoots()) {
+			if (root.getKind() == IPackageFragmentRoot.K_SOURCE) {
+				return root;
+			}
+		}
+		throw new CoreException(new Status(IStatus.ERROR, ImageConstants.ID,
+				"No source folder in " + javaProject.getElementName()));
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Minimal reader for the class file format. Reads the constant pool, the
+ * super class, the {@code ConstantValue} attributes of the fields and the
+ * signatures of the methods, without loading or initializing the class.
+ * @author Michael Kober
+ *
+ */
+public class ClassFileReader {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+	private static final String CONSTANT_VALUE = "ConstantValue";
+
+	private final Object[] constantPool;
+	private final String superClassName;
+	private final Map<String, Object> constantFields = new LinkedHashMap<String, Object>();
+	private final List<MethodInfo> methods = new ArrayList<MethodInfo>();
+
+	/**
+	 * Constructor, parses the given class file.
+	 * @param in class file content, not closed
+	 * @throws IOException if the content is not a valid class file
+	 */
+	public ClassFileReader(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Not a class file");
+		}
+		data.readUnsignedShort(); // minor version
+		data.readUnsignedShort(); // major version
+		constantPool = readConstantPool(data);
+		data.readUnsignedShort(); // access flags
+		data.readUnsignedShort(); // this class
+		superClassName = (String) constantPool[data.readUnsignedShort()];
+		skip(data, 2 * data.readUnsignedShort()); // interfaces
+		readFields(data);
+		readMethods(data);
+	}
+
+	/**
+	 * Read the class file with the given binary name from a jar.
+	 * @param jar jar file
+	 * @param className binary class name, e.g. {@code android/content/Intent}
+	 * @return reader or null if the jar does not contain the class
+	 * @throws IOException if the jar or class file can not be read
+	 */
+	public static ClassFileReader read(ZipFile jar, String className) throws IOException {
+		ZipEntry entry = jar.getEntry(className + ".class");
+		if (entry == null) {
+			return null;
+		}
+		InputStream in = jar.getInputStream(entry);
+		try {
+			return new ClassFileReader(new ByteArrayInputStream(readFully(in, (int) entry.getSize())));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Get the values of all fields with a {@code ConstantValue} attribute,
+	 * i.e. the static final fields of primitive or String type.
+	 * @return field name to constant value, in declaration order
+	 */
+	public Map<String, Object> getConstantFields() {
+		return constantFields;
+	}
+
+	/**
+	 * @return binary name of the super class, e.g. {@code android/view/ContextThemeWrapper},
+	 * or null for java.lang.Object
+	 */
+	public String getSuperClassName() {
+		return superClassName;
+	}
+
+	/**
+	 * Get the methods declared by the class, including constructors and
+	 * static initializers.
+	 * @return methods in declaration order
+	 */
+	public List<MethodInfo> getMethods() {
+		return Collections.unmodifiableList(methods);
+	}
+
+	private static Object[] readConstantPool(DataInputStream data) throws IOException {
+		int count = data.readUnsignedShort();
+		Object[] pool = new Object[count];
+		int[] nameIndexes = new int[count];
+		for (int i = 1; i < count; i++) {
+			int tag = data.readUnsignedByte();
+			switch (tag) {
+			case CONSTANT_UTF8:
+				pool[i] = data.readUTF();
+				break;
+			case CONSTANT_INTEGER:
+				pool[i] = Integer.valueOf(data.readInt());
+				break;
+			case CONSTANT_FLOAT:
+				pool[i] = Float.valueOf(data.readFloat());
+				break;
+			case CONSTANT_LONG:
+				pool[i++] = Long.valueOf(data.readLong());
+				break;
+			case CONSTANT_DOUBLE:
+				pool[i++] = Double.valueOf(data.readDouble());
+				break;
+			case CONSTANT_STRING:
+			case CONSTANT_CLASS:
+				nameIndexes[i] = data.readUnsignedShort();
+				break;
+			case CONSTANT_METHOD_TYPE:
+				data.readUnsignedShort();
+				break;
+			case CONSTANT_FIELDREF:
+			case CONSTANT_METHODREF:
+			case CONSTANT_INTERFACE_METHODREF:
+			case CONSTANT_NAME_AND_TYPE:
+			case CONSTANT_INVOKE_DYNAMIC:
+				data.readInt();
+				break;
+			case CONSTANT_METHOD_HANDLE:
+				skip(data, 3);
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag);
+			}
+		}
+		// resolve string constants and class names after all utf8 entries are known
+		for (int i = 1; i < count; i++) {
+			if (nameIndexes[i] != 0) {
+				pool[i] = pool[nameIndexes[i]];
+			}
+		}
+		return pool;
+	}
+
+	private void readFields(DataInputStream data) throws IOException {
+		int count = data.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			data.readUnsignedShort(); // access flags
+			String name = (String) constantPool[data.readUnsignedShort()];
+			data.readUnsignedShort(); // descriptor
+			int attributes = data.readUnsignedShort();
+			for (int j = 0; j < attributes; j++) {
+				String attributeName = (String) constantPool[data.readUnsignedShort()];
+				int length = data.readInt();
+				if (CONSTANT_VALUE.equals(attributeName)) {
+					constantFields.put(name, constantPool[data.readUnsignedShort()]);
+				} else {
+					skip(data, length);
+				}
+			}
+		}
+	}
+
+	private void readMethods(DataInputStream data) throws IOException {
+		int count = data.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			int access = data.readUnsignedShort();
+			String name = (String) constantPool[data.readUnsignedShort()];
+			String descriptor = (String) constantPool[data.readUnsignedShort()];
+			int attributes = data.readUnsignedShort();
+			for (int j = 0; j < attributes; j++) {
+				data.readUnsignedShort(); // attribute name
+				skip(data, data.readInt());
+			}
+			methods.add(new MethodInfo(access, name, descriptor));
+		}
+	}
+
+	private static void skip(DataInputStream data, int bytes) throws IOException {
+		int remaining = bytes;
+		while (remaining > 0) {
+			int skipped = data.skipBytes(remaining);
+			if (skipped <= 0) {
+				throw new IOException("Unexpected end of class file");
+			}
+			remaining -= skipped;
+		}
+	}
+
+	private static byte[] readFully(InputStream in, int sizeHint) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(sizeHint > 0 ? sizeHint : 8192);
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Access flags, name and descriptor of a method.
+	 */
+	public static final class MethodInfo {
+		private final int access;
+		private final String name;
+		private final String descriptor;
+
+		MethodInfo(int access, String name, String descriptor) {
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+
+		/**
+		 * @return access flags as defined by {@link java.lang.reflect.Modifier}
+		 */
+		public int getAccess() {
+			return access;
+		}
+
+		/**
+		 * @return method name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return method descriptor, e.g. {@code (Landroid/os/Bundle;)V}
+		 */
+		public String getDescriptor() {
+			return descriptor;
+		}
+	}
+}
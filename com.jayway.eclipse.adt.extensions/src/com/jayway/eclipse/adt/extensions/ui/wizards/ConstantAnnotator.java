@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+/**
+ * Gives additional information about a constant, shown next to it in the
+ * selection controls.
+ * @author Michael Kober
+ *
+ */
+public interface ConstantAnnotator {
+
+	/**
+	 * @param constant constant value
+	 * @return annotation, e.g. the API levels of the constant, or null for none
+	 */
+	String annotate(String constant);
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts constants from the class files of an android.jar by a set of
+ * {@link ConstantRule}s. All rules run in one pass over the jar: it is
+ * opened once, every class with rules is parsed once for all its rules, and
+ * the classes are parsed in parallel. No class is loaded.
+ * @author Michael Kober
+ *
+ */
+public class ConstantExtractor {
+
+	private static final String INTENT = "android/content/Intent";
+	private static final String PERMISSION = "android/Manifest$permission";
+	private static final String ACTIVITY_INFO = "android/content/pm/ActivityInfo";
+
+	private static ConstantExtractor instance = null;
+	private static ExecutorService executor = null;
+
+	private final Map<String, List<ConstantRule>> rulesByClass = new LinkedHashMap<String, List<ConstantRule>>();
+
+	/**
+	 * Get the shared extractor with the rules for the intent constants,
+	 * permissions, config changes and screen orientations.
+	 * @return extractor with the default rules
+	 */
+	public static synchronized ConstantExtractor getDefault() {
+		if (instance == null) {
+			instance = new ConstantExtractor();
+			instance.register(new ConstantRule(INTENT, "ACTION_", IntentConstants.ACTIONS, ConstantRule.Mode.VALUE));
+			instance.register(new ConstantRule(INTENT, "CATEGORY_", IntentConstants.CATEGORIES, ConstantRule.Mode.VALUE));
+			instance.register(new ConstantRule(INTENT, "EXTRA_", IntentConstants.EXTRAS, ConstantRule.Mode.VALUE));
+			instance.register(new ConstantRule(PERMISSION, "", IntentConstants.PERMISSIONS, ConstantRule.Mode.VALUE));
+			instance.register(new ConstantRule(ACTIVITY_INFO, "CONFIG_", IntentConstants.CONFIG_CHANGES,
+					ConstantRule.Mode.NAME));
+			instance.register(new ConstantRule(ACTIVITY_INFO, "SCREEN_ORIENTATION_",
+					IntentConstants.SCREEN_ORIENTATIONS, ConstantRule.Mode.NAME));
+		}
+		return instance;
+	}
+
+	/**
+	 * Register a rule. It changes the fingerprint, so caches scan their jars again.
+	 * @param rule rule to add
+	 */
+	public synchronized void register(ConstantRule rule) {
+		List<ConstantRule> rules = rulesByClass.get(rule.getClassName());
+		if (rules == null) {
+			rules = new ArrayList<ConstantRule>();
+			rulesByClass.put(rule.getClassName(), rules);
+		}
+		rules.add(rule);
+	}
+
+	/**
+	 * Identifies the registered rules, to detect cache entries extracted
+	 * with other rules.
+	 * @return description of all rules
+	 */
+	public synchronized String getFingerprint() {
+		return rulesByClass.values().toString();
+	}
+
+	/**
+	 * Run all rules over the given jar.
+	 * @param androidJar the android.jar
+	 * @return constants by target, the targets of classes missing in the jar are empty
+	 * @throws IOException if the jar or one of its classes can not be read
+	 */
+	public IntentConstants extract(File androidJar) throws IOException {
+		Map<String, List<ConstantRule>> rules;
+		synchronized (this) {
+			rules = new LinkedHashMap<String, List<ConstantRule>>(rulesByClass);
+		}
+		Map<String, Set<String>> targets = new HashMap<String, Set<String>>();
+		for (List<ConstantRule> classRules : rules.values()) {
+			for (ConstantRule rule : classRules) {
+				targets.put(rule.getTarget(), new TreeSet<String>());
+			}
+		}
+		final ZipFile jar = new ZipFile(androidJar);
+		try {
+			List<Future<ClassFileReader>> readers = new ArrayList<Future<ClassFileReader>>();
+			for (final String className : rules.keySet()) {
+				readers.add(getExecutor().submit(new Callable<ClassFileReader>() {
+					public ClassFileReader call() throws IOException {
+						return ClassFileReader.read(jar, className);
+					}
+				}));
+			}
+			int i = 0;
+			for (List<ConstantRule> classRules : rules.values()) {
+				ClassFileReader reader = get(readers.get(i++));
+				if (reader != null) {
+					apply(reader, classRules, targets);
+				}
+			}
+		} finally {
+			jar.close();
+		}
+		return new IntentConstants(targets);
+	}
+
+	private static void apply(ClassFileReader reader, List<ConstantRule> rules, Map<String, Set<String>> targets) {
+		for (Map.Entry<String, Object> field : reader.getConstantFields().entrySet()) {
+			for (ConstantRule rule : rules) {
+				String value = rule.apply(field.getKey(), field.getValue());
+				if (value != null) {
+					targets.get(rule.getTarget()).add(value);
+				}
+			}
+		}
+	}
+
+	private static ClassFileReader get(Future<ClassFileReader> reader) throws IOException {
+		try {
+			return reader.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(String.valueOf(e.getCause()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted");
+		}
+	}
+
+	/**
+	 * Daemon threads for parsing class files, separate from the threads
+	 * reading whole jars so nested waits can not exhaust the pool.
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Android constant extraction");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+/**
+ * Rule of the {@link ConstantExtractor}: the constant fields of a class
+ * whose names start with a prefix are collected into a target set, either
+ * with their String value, e.g. {@code android.intent.action.MAIN} for
+ * {@code Intent.ACTION_MAIN}, or with their name as used in the manifest,
+ * e.g. {@code keyboardHidden} for {@code ActivityInfo.CONFIG_KEYBOARD_HIDDEN}.
+ * @author Michael Kober
+ *
+ */
+public final class ConstantRule {
+
+	/**
+	 * What is collected of a matching field.
+	 */
+	public enum Mode {
+		/** the String value of the field */
+		VALUE,
+		/** the field name without prefix in lower camel case */
+		NAME
+	}
+
+	private final String className;
+	private final String prefix;
+	private final String target;
+	private final Mode mode;
+
+	/**
+	 * Constructor.
+	 * @param className binary class name, e.g. {@code android/Manifest$permission}
+	 * @param prefix field name prefix, may be empty
+	 * @param target name of the target set
+	 * @param mode what to collect
+	 */
+	public ConstantRule(String className, String prefix, String target, Mode mode) {
+		this.className = className;
+		this.prefix = prefix;
+		this.target = target;
+		this.mode = mode;
+	}
+
+	/**
+	 * @return binary class name
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * @return name of the target set
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	/**
+	 * Apply the rule to a constant field of its class.
+	 * @param fieldName field name
+	 * @param value constant value
+	 * @return value to collect or null if the field does not match
+	 */
+	public String apply(String fieldName, Object value) {
+		if (!fieldName.startsWith(prefix)) {
+			return null;
+		}
+		if (mode == Mode.VALUE) {
+			return value instanceof String ? (String) value : null;
+		}
+		return camelCase(fieldName.substring(prefix.length()));
+	}
+
+	private static String camelCase(String constantName) {
+		StringBuilder buf = new StringBuilder(constantName.length());
+		boolean upper = false;
+		for (int i = 0; i < constantName.length(); i++) {
+			char c = constantName.charAt(i);
+			if (c == '_') {
+				upper = buf.length() > 0;
+			} else {
+				buf.append(upper ? c : Character.toLowerCase(c));
+				upper = false;
+			}
+		}
+		return buf.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return className + "#" + prefix + "*->" + target + "(" + mode + ")";
+	}
+}
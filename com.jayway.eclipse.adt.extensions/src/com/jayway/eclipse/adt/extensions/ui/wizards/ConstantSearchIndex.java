@@ -0,0 +1,367 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Precomputed search index over constant values such as intent actions.
+ * Queries of three or more characters are matched through a trigram index
+ * and ranked by the number of shared trigrams, so "brow" finds
+ * {@code android.intent.category.BROWSABLE} and small typos are tolerated.
+ * Shorter queries are matched as prefix of a name segment. A query only
+ * touches the posting lists of its own trigrams, not all elements.
+ * Instances are immutable after construction, except for scratch arrays
+ * guarded by the index itself.
+ * @author Michael Kober
+ *
+ */
+public final class ConstantSearchIndex {
+
+	private static final int GRAM = 3;
+	private static final int[] NO_IDS = new int[0];
+	private static final int MAX_LENGTH = 0xFFFFF;
+	private static final int MAX_ID = 0xFFFFF;
+
+	private final String[] elements;
+	private final String[] lowerElements;
+	private final GramTable trigrams;
+	/** ids of the elements containing a trigram, by trigram number */
+	private final int[][] postings;
+	/** lower case name segments, sorted, with the id of their element */
+	private final String[] segments;
+	private final int[] segmentIds;
+
+	private final int[] scores;
+	private final int[] touched;
+
+	/**
+	 * Build the index, in time linear to the total length of the elements.
+	 * @param values elements to search, at most about a million, the order is
+	 * kept for empty queries
+	 */
+	public ConstantSearchIndex(Collection<String> values) {
+		elements = values.toArray(new String[values.size()]);
+		lowerElements = new String[elements.length];
+		scores = new int[elements.length];
+		touched = new int[elements.length];
+
+		GramTable grams = new GramTable();
+		List<IntList> postings = new ArrayList<IntList>();
+		List<Segment> allSegments = new ArrayList<Segment>();
+		for (int id = 0; id < elements.length; id++) {
+			String lower = elements[id].toLowerCase();
+			lowerElements[id] = lower;
+			for (int i = 0; i + GRAM <= lower.length(); i++) {
+				int gram = grams.intern(gram(lower, i));
+				if (gram == postings.size()) {
+					postings.add(new IntList());
+				}
+				// ids are added in ascending order, so a repeated gram is the last entry
+				postings.get(gram).addOnce(id);
+			}
+			int start = 0;
+			for (int i = 0; i <= lower.length(); i++) {
+				if (i == lower.length() || lower.charAt(i) == '.' || lower.charAt(i) == '_') {
+					if (i > start) {
+						allSegments.add(new Segment(lower.substring(start, i), id));
+					}
+					start = i + 1;
+				}
+			}
+		}
+		trigrams = grams;
+		this.postings = new int[postings.size()][];
+		for (int i = 0; i < this.postings.length; i++) {
+			this.postings[i] = postings.get(i).toArray();
+		}
+		Segment[] sorted = allSegments.toArray(new Segment[allSegments.size()]);
+		Arrays.sort(sorted);
+		segments = new String[sorted.length];
+		segmentIds = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			segments[i] = sorted[i].text;
+			segmentIds[i] = sorted[i].id;
+		}
+	}
+
+	/**
+	 * @return all elements in their original order
+	 */
+	public String[] getElements() {
+		return elements.clone();
+	}
+
+	/**
+	 * @return number of elements
+	 */
+	public int size() {
+		return elements.length;
+	}
+
+	/**
+	 * Find the elements matching the query, best matches first.
+	 * @param query search text, case is ignored, empty matches all elements
+	 * @param limit maximum number of results
+	 * @return matching elements
+	 */
+	public synchronized List<String> search(String query, int limit) {
+		String lower = query.trim().toLowerCase();
+		if (lower.length() == 0) {
+			return Arrays.asList(elements).subList(0, Math.min(limit, elements.length));
+		}
+		int count = lower.length() < GRAM ? scorePrefix(lower) : scoreTrigrams(lower);
+		// best matches by rank, then shorter elements, packed into one long per
+		// candidate and selected with a bounded heap instead of sorting all
+		long[] heap = new long[Math.min(limit, count)];
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			int id = touched[i];
+			int length = Math.min(lowerElements[id].length(), MAX_LENGTH);
+			long key = ((long) rank(id, lower) << 40) | ((long) (MAX_LENGTH - length) << 20) | (MAX_ID - id);
+			scores[id] = 0;
+			if (size < heap.length) {
+				heap[size] = key;
+				siftUp(heap, size++);
+			} else if (size > 0 && key > heap[0]) {
+				heap[0] = key;
+				siftDown(heap, size);
+			}
+		}
+		Arrays.sort(heap, 0, size);
+		List<String> result = new ArrayList<String>(size);
+		for (int i = size - 1; i >= 0; i--) {
+			result.add(elements[MAX_ID - (int) (heap[i] & MAX_ID)]);
+		}
+		return result;
+	}
+
+	private static void siftUp(long[] heap, int index) {
+		int i = index;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] <= heap[i]) {
+				break;
+			}
+			long tmp = heap[parent];
+			heap[parent] = heap[i];
+			heap[i] = tmp;
+			i = parent;
+		}
+	}
+
+	private static void siftDown(long[] heap, int size) {
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (heap[i] <= heap[child]) {
+				break;
+			}
+			long tmp = heap[child];
+			heap[child] = heap[i];
+			heap[i] = tmp;
+			i = child;
+		}
+	}
+
+	/**
+	 * Score is the number of query trigrams an element shares, elements with
+	 * less than half of them are dropped again.
+	 */
+	private int scoreTrigrams(String query) {
+		int count = 0;
+		int grams = 0;
+		Set<Integer> seen = new HashSet<Integer>();
+		for (int i = 0; i + GRAM <= query.length(); i++) {
+			int gram = trigrams.get(gram(query, i));
+			if (!seen.add(Integer.valueOf(gram))) {
+				continue;
+			}
+			grams++;
+			for (int id : gram >= 0 ? postings[gram] : NO_IDS) {
+				if (scores[id]++ == 0) {
+					touched[count++] = id;
+				}
+			}
+		}
+		int minimum = Math.max(1, (grams + 1) / 2);
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			int id = touched[i];
+			if (scores[id] >= minimum) {
+				touched[kept++] = id;
+			} else {
+				scores[id] = 0;
+			}
+		}
+		return kept;
+	}
+
+	private int scorePrefix(String query) {
+		int count = 0;
+		int low = 0;
+		int high = segments.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (segments[mid].compareTo(query) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		for (int i = low; i < segments.length && segments[i].startsWith(query); i++) {
+			int id = segmentIds[i];
+			if (scores[id]++ == 0) {
+				touched[count++] = id;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Trigram score plus a bonus for exact substring and segment prefix matches.
+	 */
+	private int rank(int id, String query) {
+		String lower = lowerElements[id];
+		int rank = scores[id] * 4;
+		int index = lower.indexOf(query);
+		if (index >= 0) {
+			rank += 2;
+			if (index == 0 || lower.charAt(index - 1) == '.' || lower.charAt(index - 1) == '_') {
+				rank += 1;
+			}
+		}
+		return rank;
+	}
+
+	private static long gram(String text, int offset) {
+		return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+	}
+
+	/**
+	 * Name segment of an element, ordered by text.
+	 */
+	private static final class Segment implements Comparable<Segment> {
+		private final String text;
+		private final int id;
+
+		Segment(String text, int id) {
+			this.text = text;
+			this.id = id;
+		}
+
+		public int compareTo(Segment other) {
+			return text.compareTo(other.text);
+		}
+	}
+
+	/**
+	 * Open addressing table numbering the distinct trigrams.
+	 */
+	private static final class GramTable {
+		private long[] keys = new long[1024];
+		private int[] numbers = new int[1024];
+		private int size = 0;
+
+		GramTable() {
+			Arrays.fill(numbers, -1);
+		}
+
+		/**
+		 * @return number of the trigram, a new one if it is not known yet
+		 */
+		int intern(long gram) {
+			int slot = slot(gram);
+			if (numbers[slot] < 0) {
+				keys[slot] = gram;
+				numbers[slot] = size++;
+				if (size * 2 > keys.length) {
+					grow();
+				}
+				return size - 1;
+			}
+			return numbers[slot];
+		}
+
+		/**
+		 * @return number of the trigram or -1
+		 */
+		int get(long gram) {
+			return numbers[slot(gram)];
+		}
+
+		private int slot(long gram) {
+			int mask = keys.length - 1;
+			int slot = (int) (gram ^ (gram >>> 29)) * 0x9E3779B9 & mask;
+			while (numbers[slot] >= 0 && keys[slot] != gram) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldNumbers = numbers;
+			keys = new long[oldKeys.length * 2];
+			numbers = new int[oldKeys.length * 2];
+			Arrays.fill(numbers, -1);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldNumbers[i] >= 0) {
+					int slot = slot(oldKeys[i]);
+					keys[slot] = oldKeys[i];
+					numbers[slot] = oldNumbers[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Growable int array for the posting lists.
+	 */
+	private static final class IntList {
+		private int[] values = new int[4];
+		private int size = 0;
+
+		void addOnce(int value) {
+			if (size > 0 && values[size - 1] == value) {
+				return;
+			}
+			if (size == values.length) {
+				int[] grown = new int[size * 2];
+				System.arraycopy(values, 0, grown, 0, size);
+				values = grown;
+			}
+			values[size++] = value;
+		}
+
+		int[] toArray() {
+			int[] result = new int[size];
+			System.arraycopy(values, 0, result, 0, size);
+			return result;
+		}
+	}
+}
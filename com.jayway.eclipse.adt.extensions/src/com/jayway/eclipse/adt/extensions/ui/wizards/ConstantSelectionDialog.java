@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.dialogs.SelectionStatusDialog;
+
+/**
+ * Multi selection dialog over a {@link ConstantSearchIndex}. Every keystroke
+ * runs one ranked index query, the matches are shown in a virtual table.
+ * @author Michael Kober
+ *
+ */
+public class ConstantSelectionDialog extends SelectionStatusDialog {
+
+	private static final int MAX_MATCHES = 500;
+
+	private final ConstantSearchIndex index;
+	private final ConstantAnnotator annotator;
+	private List<String> matches = Collections.emptyList();
+	private Text filter;
+	private Table table;
+
+	/**
+	 * Constructor.
+	 * @param parent parent shell
+	 * @param index constants to select from
+	 * @param annotator additional information shown next to the constants, may be null
+	 */
+	public ConstantSelectionDialog(Shell parent, ConstantSearchIndex index, ConstantAnnotator annotator) {
+		super(parent);
+		this.index = index;
+		this.annotator = annotator;
+		setShellStyle(getShellStyle() | SWT.RESIZE);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.dialogs.Dialog#createDialogArea(org.eclipse.swt.widgets.Composite)
+	 */
+	@Override
+	protected Control createDialogArea(Composite parent) {
+		Composite contents = (Composite) super.createDialogArea(parent);
+		Label label = new Label(contents, SWT.NONE);
+		label.setText(getMessage());
+
+		filter = new Text(contents, SWT.BORDER);
+		filter.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
+		filter.addModifyListener(new ModifyListener() {
+			public void modifyText(ModifyEvent e) {
+				updateMatches();
+			}
+		});
+
+		table = new Table(contents, SWT.MULTI | SWT.BORDER | SWT.V_SCROLL | SWT.VIRTUAL);
+		GridData gridData = new GridData(SWT.FILL, SWT.FILL, true, true);
+		gridData.widthHint = convertWidthInCharsToPixels(60);
+		gridData.heightHint = convertHeightInCharsToPixels(18);
+		table.setLayoutData(gridData);
+		table.addListener(SWT.SetData, new Listener() {
+			public void handleEvent(Event event) {
+				((TableItem) event.item).setText(label(matches.get(event.index), annotator));
+			}
+		});
+		table.addListener(SWT.DefaultSelection, new Listener() {
+			public void handleEvent(Event event) {
+				okPressed();
+			}
+		});
+
+		updateMatches();
+		return contents;
+	}
+
+	private void updateMatches() {
+		String query = filter.getText();
+		// the table is virtual, so an empty filter lists all constants; other
+		// queries are ranked and cut off, one extra match tells if there are more
+		boolean all = query.trim().length() == 0;
+		matches = index.search(query, all ? index.size() : MAX_MATCHES + 1);
+		boolean truncated = matches.size() > MAX_MATCHES && !all;
+		if (truncated) {
+			matches = matches.subList(0, MAX_MATCHES);
+		}
+		table.clearAll();
+		table.setItemCount(matches.size());
+		if (!matches.isEmpty()) {
+			table.setSelection(0);
+		}
+		if (matches.isEmpty()) {
+			updateStatus(new Status(IStatus.ERROR, ImageConstants.ID, "No matching constants"));
+		} else if (truncated) {
+			updateStatus(new Status(IStatus.INFO, ImageConstants.ID,
+					"Showing the best " + MAX_MATCHES + " matches, refine the filter to see more"));
+		} else {
+			updateStatus(new Status(IStatus.OK, ImageConstants.ID, ""));
+		}
+	}
+
+	/**
+	 * Get the text shown for a constant.
+	 * @param constant constant value
+	 * @param annotator annotator, may be null
+	 * @return constant followed by its annotation in parentheses, if any
+	 */
+	static String label(String constant, ConstantAnnotator annotator) {
+		String annotation = annotator != null ? annotator.annotate(constant) : null;
+		return annotation != null ? constant + " (" + annotation + ")" : constant;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.dialogs.SelectionStatusDialog#computeResult()
+	 */
+	@Override
+	protected void computeResult() {
+		List<String> result = new ArrayList<String>();
+		for (int selected : table.getSelectionIndices()) {
+			result.add(matches.get(selected));
+		}
+		setResult(result);
+	}
+}
@@ -15,10 +15,13 @@
  */
 package com.jayway.eclipse.adt.extensions.ui.wizards;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
-import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
@@ -27,12 +30,16 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Group;
-import org.eclipse.swt.widgets.List;
-import org.eclipse.ui.dialogs.ElementListSelectionDialog;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
 
 /**
  * Provides a List element with Add and Remove buttons to select entries from a list of Objects.
+ * The list is a virtual table, rows are only rendered when visible and adds and removes
+ * only update the item count instead of creating or rebuilding rows.
  * @author Michael Kober
  *
  */
@@ -40,21 +47,33 @@ public class ElementListSelector {
 	
 	private final Button addButton;
 	private final Button removeButton;
-	private final Object[] elements;
+	private ConstantSearchIndex index;
+	private ConstantAnnotator annotator = null;
 	private final Set<String> selectedElements = new TreeSet<String>(); 
+	/** selected elements in table order */
+	private final List<String> rows = new ArrayList<String>();
 	
-	private final List list;
+	private final Table table;
+	private final Group intentGroup;
+	private final String groupDescr;
 	
 	public ElementListSelector(final Composite composite, GridData gridData, final String groupDescr, final String selectionMessage, final Object[] elements) {
-		this.elements = elements;
-		Group intentGroup = new Group(composite, SWT.NONE);
+		this.index = elements != null ? createIndex(elements) : null;
+		this.groupDescr = groupDescr;
+		intentGroup = new Group(composite, SWT.NONE);
 		intentGroup.setLayout(new GridLayout(2, false));
 		intentGroup.setLayoutData(gridData);
 		intentGroup.setText(groupDescr);
 		
-		list = new List(intentGroup, SWT.MULTI | SWT.BORDER | SWT.V_SCROLL);
-		
-		list.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
+		table = new Table(intentGroup, SWT.MULTI | SWT.BORDER | SWT.V_SCROLL | SWT.VIRTUAL);
+		GridData tableData = new GridData(SWT.FILL, SWT.TOP, true, false);
+		tableData.heightHint = table.getItemHeight() * 4;
+		table.setLayoutData(tableData);
+		table.addListener(SWT.SetData, new Listener() {
+			public void handleEvent(Event event) {
+				((TableItem) event.item).setText(label(rows.get(event.index)));
+			}
+		});
 		
 		Composite buttonComp = new Composite(intentGroup, SWT.NONE);
 		buttonComp.setLayout(new FillLayout(SWT.VERTICAL));
@@ -73,41 +92,129 @@ public class ElementListSelector {
 		removeButton.setText("Remove...");
 		removeButton.addSelectionListener(new SelectionListener() {
 			public void widgetSelected(SelectionEvent e) {
-				int[] selection = list.getSelectionIndices();
-				if (selection != null) {
-					for (String selectedElement : list.getSelection()) {
-						selectedElements.remove(selectedElement);
-					}
-					list.remove(selection);
-					list.update();
-				}
+				removeSelected();
 			}
 			public void widgetDefaultSelected(SelectionEvent e) {
 				// TODO Auto-generated method stub
 				
 			}
         });
+		
+		if (elements == null) {
+			intentGroup.setText(groupDescr + " (loading...)");
+			addButton.setEnabled(false);
+		}
+	}
+	
+	/**
+	 * Creates a selector in loading state, the elements are provided later
+	 * with {@link #setIndex(ConstantSearchIndex)}.
+	 */
+	public ElementListSelector(final Composite composite, GridData gridData, final String groupDescr, final String selectionMessage) {
+		this(composite, gridData, groupDescr, selectionMessage, null);
+	}
+	
+	/**
+	 * Set the elements to select from and leave the loading state.
+	 * Must be called in the UI thread.
+	 * @param elements elements to select from
+	 */
+	public void setElements(Object[] elements) {
+		setIndex(createIndex(elements));
+	}
+	
+	/**
+	 * Set the search index of the elements to select from and leave the
+	 * loading state. Must be called in the UI thread.
+	 * @param index index of the elements, may be shared
+	 */
+	public void setIndex(ConstantSearchIndex index) {
+		setIndex(index, null);
+	}
+	
+	/**
+	 * Set the search index of the elements to select from and leave the
+	 * loading state. Must be called in the UI thread.
+	 * @param index index of the elements, may be shared
+	 * @param annotator additional information shown next to the elements, may be null
+	 */
+	public void setIndex(ConstantSearchIndex index, ConstantAnnotator annotator) {
+		if (intentGroup.isDisposed()) {
+			return;
+		}
+		this.index = index;
+		this.annotator = annotator;
+		intentGroup.setText(groupDescr);
+		addButton.setEnabled(true);
+	}
+	
+	/**
+	 * Leave the loading state without elements, e.g. if they could not be read.
+	 * Must be called in the UI thread.
+	 */
+	public void setUnavailable() {
+		if (intentGroup.isDisposed()) {
+			return;
+		}
+		intentGroup.setText(groupDescr + " (not available)");
+		addButton.setEnabled(false);
+	}
+	
+	private static ConstantSearchIndex createIndex(Object[] elements) {
+		List<String> values = new ArrayList<String>(elements.length);
+		for (Object element : elements) {
+			values.add(element.toString());
+		}
+		return new ConstantSearchIndex(values);
 	}
 	
 	private void showSelectionDialog(Composite composite, String selectionMessage) {
-		LabelProvider labelProvider = new LabelProvider();
-		ElementListSelectionDialog dialog = new ElementListSelectionDialog(composite.getShell(), labelProvider);
-		dialog.setElements(elements);
-		dialog.setIgnoreCase(true);
+		ConstantSelectionDialog dialog = new ConstantSelectionDialog(composite.getShell(), index, annotator);
+		dialog.setTitle(groupDescr);
 		dialog.setMessage(selectionMessage);
-		dialog.setMultipleSelection(true);
 		dialog.open();
 		Object[] result = dialog.getResult();
 		if (result != null) {
-			for (Object object : result) {
-				selectedElements.add((String) object);
-			}
-			list.removeAll();
-			for (Object elem : selectedElements) {
-				list.add(elem.toString());	
+			add(result);
+		}
+	}
+	
+	/**
+	 * Add the elements that are not selected yet and sort the rows once.
+	 * The table only gets its new item count and is cleared, the rows are
+	 * filled by the SetData listener when they become visible.
+	 */
+	private void add(Object[] elements) {
+		int count = rows.size();
+		for (Object element : elements) {
+			if (selectedElements.add((String) element)) {
+				rows.add((String) element);
 			}
-			list.update();
 		}
+		if (rows.size() > count) {
+			Collections.sort(rows);
+			table.setItemCount(rows.size());
+			table.clearAll();
+		}
+	}
+	
+	private String label(String element) {
+		return ConstantSelectionDialog.label(element, annotator);
+	}
+	
+	/**
+	 * Remove the selected rows, the other rows are kept.
+	 */
+	private void removeSelected() {
+		int[] selection = table.getSelectionIndices();
+		if (selection.length == 0) {
+			return;
+		}
+		Arrays.sort(selection);
+		for (int i = selection.length - 1; i >= 0; i--) {
+			selectedElements.remove(rows.remove(selection[i]));
+		}
+		table.remove(selection);
 	}
 	
 	/**
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Immutable sets of the constants of one android.jar, by target: Intent
+ * actions, categories and extras, permissions, config changes and screen
+ * orientations, see {@link ConstantExtractor}. Search indexes are built
+ * lazily. Instances are shared between all wizards, see {@link IntentConstantsCache}.
+ * @author Michael Kober
+ *
+ */
+public final class IntentConstants {
+
+	/** Target of the Intent actions. */
+	public static final String ACTIONS = "actions";
+	/** Target of the Intent categories. */
+	public static final String CATEGORIES = "categories";
+	/** Target of the Intent extras. */
+	public static final String EXTRAS = "extras";
+	/** Target of the permissions of android.Manifest.permission. */
+	public static final String PERMISSIONS = "permissions";
+	/** Target of the android:configChanges values. */
+	public static final String CONFIG_CHANGES = "configChanges";
+	/** Target of the android:screenOrientation values. */
+	public static final String SCREEN_ORIENTATIONS = "screenOrientations";
+
+	/** Constants of a missing or unreadable android.jar. */
+	public static final IntentConstants EMPTY = new IntentConstants(new HashMap<String, Set<String>>());
+
+	private static final SortedSet<String> NONE = Collections.unmodifiableSortedSet(new TreeSet<String>());
+
+	private final Map<String, SortedSet<String>> targets = new HashMap<String, SortedSet<String>>();
+	private final Map<String, ConstantSearchIndex> indexes = new HashMap<String, ConstantSearchIndex>();
+
+	/**
+	 * Constructor.
+	 * @param actions intent actions, copied
+	 * @param categories intent categories, copied
+	 */
+	public IntentConstants(Set<String> actions, Set<String> categories) {
+		this(twoTargets(actions, categories));
+	}
+
+	/**
+	 * Constructor.
+	 * @param targets constants by target, copied
+	 */
+	public IntentConstants(Map<String, ? extends Set<String>> targets) {
+		for (Map.Entry<String, ? extends Set<String>> target : targets.entrySet()) {
+			this.targets.put(target.getKey(), Collections.unmodifiableSortedSet(new TreeSet<String>(target.getValue())));
+		}
+	}
+
+	private static Map<String, Set<String>> twoTargets(Set<String> actions, Set<String> categories) {
+		Map<String, Set<String>> targets = new HashMap<String, Set<String>>();
+		targets.put(ACTIONS, actions);
+		targets.put(CATEGORIES, categories);
+		return targets;
+	}
+
+	/**
+	 * @return names of the targets with constants
+	 */
+	public Set<String> getTargets() {
+		return Collections.unmodifiableSet(targets.keySet());
+	}
+
+	/**
+	 * Get the constants of a target.
+	 * @param target target name, e.g. {@link #PERMISSIONS}
+	 * @return unmodifiable sorted set, empty for unknown targets
+	 */
+	public SortedSet<String> get(String target) {
+		SortedSet<String> constants = targets.get(target);
+		return constants != null ? constants : NONE;
+	}
+
+	/**
+	 * Get the intent actions.
+	 * @return unmodifiable sorted set of intent actions
+	 */
+	public SortedSet<String> getActions() {
+		return get(ACTIONS);
+	}
+
+	/**
+	 * Get the intent categories.
+	 * @return unmodifiable sorted set of intent categories
+	 */
+	public SortedSet<String> getCategories() {
+		return get(CATEGORIES);
+	}
+
+	/**
+	 * Merge with the constants of another platform, e.g. an add-on of the
+	 * same API level.
+	 * @param other constants to add
+	 * @return constants of both, by target
+	 */
+	public IntentConstants merge(IntentConstants other) {
+		Map<String, Set<String>> merged = new HashMap<String, Set<String>>();
+		for (IntentConstants constants : new IntentConstants[] {this, other}) {
+			for (Map.Entry<String, SortedSet<String>> target : constants.targets.entrySet()) {
+				Set<String> values = merged.get(target.getKey());
+				if (values == null) {
+					values = new TreeSet<String>();
+					merged.put(target.getKey(), values);
+				}
+				values.addAll(target.getValue());
+			}
+		}
+		return new IntentConstants(merged);
+	}
+
+	/**
+	 * Get the search index of a target, built on first use and shared like
+	 * the constants.
+	 * @param target target name
+	 * @return search index
+	 */
+	public synchronized ConstantSearchIndex getIndex(String target) {
+		ConstantSearchIndex index = indexes.get(target);
+		if (index == null) {
+			index = new ConstantSearchIndex(get(target));
+			indexes.put(target, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Get the search index of the intent actions.
+	 * @return action index
+	 */
+	public ConstantSearchIndex getActionIndex() {
+		return getIndex(ACTIONS);
+	}
+
+	/**
+	 * Get the search index of the intent categories.
+	 * @return category index
+	 */
+	public ConstantSearchIndex getCategoryIndex() {
+		return getIndex(CATEGORIES);
+	}
+
+	/**
+	 * Read the constants of the given android.jar with the default rules of
+	 * the {@link ConstantExtractor}. No class is loaded and the jar is
+	 * closed afterwards.
+	 * @param androidJar the android.jar
+	 * @return constants
+	 * @throws IOException if the jar can not be read or has no Intent constants
+	 */
+	static IntentConstants read(File androidJar) throws IOException {
+		return read(androidJar, ConstantExtractor.getDefault());
+	}
+
+	/**
+	 * Read the constants of the given android.jar.
+	 * @param androidJar the android.jar
+	 * @param extractor rules to apply
+	 * @return constants
+	 * @throws IOException if the jar can not be read or has no Intent constants
+	 */
+	static IntentConstants read(File androidJar, ConstantExtractor extractor) throws IOException {
+		IntentConstants constants;
+		Probes.Probe probe = Probes.start(Probes.Phase.JAR_SCAN);
+		try {
+			constants = extractor.extract(androidJar);
+		} finally {
+			Probes.end(probe);
+		}
+		if (constants.getActions().isEmpty()) {
+			throw new IOException("No Intent constants in " + androidJar);
+		}
+		return constants;
+	}
+}
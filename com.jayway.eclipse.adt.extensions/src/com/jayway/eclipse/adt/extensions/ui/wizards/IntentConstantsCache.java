@@ -0,0 +1,263 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.runtime.Platform;
+import org.osgi.framework.Bundle;
+
+/**
+ * Workspace wide cache of the {@link IntentConstants} per android.jar.
+ * Entries are kept in memory and in the plugin state location, keyed by
+ * path, size and modification time of the jar and the fingerprint of the
+ * rules of the {@link ConstantExtractor}, so the jar is only scanned again
+ * after the SDK platform has changed or rules were registered.
+ * @author Michael Kober
+ *
+ */
+public class IntentConstantsCache {
+
+	private static final int FORMAT_VERSION = 2;
+	private static final String CACHE_FILE_SUFFIX = ".intents";
+
+	private static IntentConstantsCache instance = null;
+
+	private final Map<Key, IntentConstants> entries = new HashMap<Key, IntentConstants>();
+	private final File cacheDir;
+	private final ConstantExtractor extractor;
+
+	/**
+	 * Constructor, the jars are read with the default rules.
+	 * @param cacheDir directory for the cache files, or null for a memory only cache
+	 */
+	public IntentConstantsCache(File cacheDir) {
+		this(cacheDir, ConstantExtractor.getDefault());
+	}
+
+	/**
+	 * Constructor.
+	 * @param cacheDir directory for the cache files, or null for a memory only cache
+	 * @param extractor extractor reading the jars
+	 */
+	public IntentConstantsCache(File cacheDir, ConstantExtractor extractor) {
+		this.cacheDir = cacheDir;
+		this.extractor = extractor;
+	}
+
+	/**
+	 * Get the shared cache, stored in the state location of this plugin.
+	 * @return workspace wide cache
+	 */
+	public static synchronized IntentConstantsCache getDefault() {
+		if (instance == null) {
+			File dir = null;
+			Bundle bundle = Platform.getBundle(ImageConstants.ID);
+			if (bundle != null) {
+				dir = Platform.getStateLocation(bundle).toFile();
+			}
+			instance = new IntentConstantsCache(dir);
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the constants of the given android.jar, scanning the jar
+	 * only if neither the memory nor the disk cache has a current entry.
+	 * Different jars can be read concurrently, the lock is only held for
+	 * the lookup.
+	 * @param androidJar the android.jar
+	 * @return constants of all targets of the extractor, shared and immutable
+	 * @throws IOException if the jar can not be read or has no Intent constants
+	 */
+	public IntentConstants get(File androidJar) throws IOException {
+		Key key = new Key(androidJar, extractor.getFingerprint());
+		synchronized (entries) {
+			IntentConstants constants = entries.get(key);
+			if (constants != null) {
+				return constants;
+			}
+		}
+		IntentConstants constants = load(key);
+		if (constants == null) {
+			constants = IntentConstants.read(androidJar, extractor);
+			store(key, constants);
+		}
+		synchronized (entries) {
+			// keep the first result if the jar was read concurrently
+			IntentConstants existing = entries.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			entries.put(key, constants);
+		}
+		return constants;
+	}
+
+	/**
+	 * Drop all entries from memory.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Read the entry for the given key from disk.
+	 * @param key cache key
+	 * @return constants or null if there is no current entry on disk
+	 */
+	private IntentConstants load(Key key) {
+		File file = cacheFile(key);
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != FORMAT_VERSION
+					|| !key.equals(new Key(in.readUTF(), in.readLong(), in.readLong(), in.readUTF()))) {
+				return null;
+			}
+			Map<String, Set<String>> targets = new HashMap<String, Set<String>>();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String target = in.readUTF();
+				targets.put(target, readStrings(in));
+			}
+			return new IntentConstants(targets);
+		} catch (IOException e) {
+			// stale or broken cache file, will be rewritten
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Write the entry for the given key to disk. Failures are ignored, the
+	 * jar is simply scanned again next time.
+	 * @param key cache key
+	 * @param constants constants to store
+	 */
+	private void store(Key key, IntentConstants constants) {
+		File file = cacheFile(key);
+		if (file == null) {
+			return;
+		}
+		DataOutputStream out = null;
+		try {
+			cacheDir.mkdirs();
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(key.path);
+			out.writeLong(key.size);
+			out.writeLong(key.lastModified);
+			out.writeUTF(key.fingerprint);
+			out.writeInt(constants.getTargets().size());
+			for (String target : constants.getTargets()) {
+				out.writeUTF(target);
+				writeStrings(out, constants.get(target));
+			}
+		} catch (IOException e) {
+			file.delete();
+		} finally {
+			close(out);
+		}
+	}
+
+	private File cacheFile(Key key) {
+		if (cacheDir == null) {
+			return null;
+		}
+		return new File(cacheDir, Integer.toHexString(key.path.hashCode()) + CACHE_FILE_SUFFIX);
+	}
+
+	private static Set<String> readStrings(DataInputStream in) throws IOException {
+		Set<String> result = new TreeSet<String>();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			result.add(in.readUTF());
+		}
+		return result;
+	}
+
+	private static void writeStrings(DataOutputStream out, Set<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String string : strings) {
+			out.writeUTF(string);
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Identity of an android.jar: path, size and modification time.
+	 */
+	private static final class Key {
+		private final String path;
+		private final long size;
+		private final long lastModified;
+		private final String fingerprint;
+
+		Key(File file, String fingerprint) {
+			this(file.getAbsolutePath(), file.length(), file.lastModified(), fingerprint);
+		}
+
+		Key(String path, long size, long lastModified, String fingerprint) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return path.equals(other.path) && size == other.size && lastModified == other.lastModified
+					&& fingerprint.equals(other.fingerprint);
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode() ^ (int) (size ^ lastModified);
+		}
+	}
+}
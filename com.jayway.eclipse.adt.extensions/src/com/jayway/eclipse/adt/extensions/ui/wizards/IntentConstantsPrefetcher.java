@@ -0,0 +1,154 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.ui.IStartup;
+
+/**
+ * Warms the {@link IntentConstantsCache} and the search indexes in a low
+ * priority background job whenever an Android project is opened or its
+ * classpath changes, so the wizard finds the intent constants already computed.
+ * @author Michael Kober
+ *
+ */
+public class IntentConstantsPrefetcher extends Job implements IElementChangedListener, IStartup {
+
+	/** Nature of Android projects. */
+	public static final String ANDROID_NATURE = "com.android.ide.eclipse.adt.AndroidNature";
+
+	private static final long SCHEDULE_DELAY = 500;
+	private static final int CLASSPATH_FLAGS = IJavaElementDelta.F_OPENED
+			| IJavaElementDelta.F_CLASSPATH_CHANGED
+			| IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED;
+
+	private final Set<IJavaProject> pending = new LinkedHashSet<IJavaProject>();
+
+	/**
+	 * Constructor.
+	 */
+	public IntentConstantsPrefetcher() {
+		super("Reading Android intent constants");
+		setPriority(Job.DECORATE);
+		setSystem(true);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IStartup#earlyStartup()
+	 */
+	public void earlyStartup() {
+		JavaCore.addElementChangedListener(this, ElementChangedEvent.POST_CHANGE);
+		try {
+			for (IJavaProject javaProject : JavaCore.create(ResourcesPlugin.getWorkspace().getRoot())
+					.getJavaProjects()) {
+				prefetch(javaProject);
+			}
+		} catch (JavaModelException e) {
+			// nothing to prefetch
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jdt.core.IElementChangedListener#elementChanged(org.eclipse.jdt.core.ElementChangedEvent)
+	 */
+	public void elementChanged(ElementChangedEvent event) {
+		for (IJavaElementDelta delta : event.getDelta().getAffectedChildren()) {
+			IJavaElement element = delta.getElement();
+			if (element.getElementType() != IJavaElement.JAVA_PROJECT) {
+				continue;
+			}
+			if (delta.getKind() == IJavaElementDelta.ADDED || (delta.getFlags() & CLASSPATH_FLAGS) != 0) {
+				prefetch((IJavaProject) element);
+			}
+		}
+	}
+
+	/**
+	 * Schedule reading the intent constants of the given project, if it is
+	 * an open Android project.
+	 * @param javaProject project to prefetch
+	 */
+	public void prefetch(IJavaProject javaProject) {
+		if (!isAndroidProject(javaProject.getProject())) {
+			return;
+		}
+		synchronized (pending) {
+			pending.add(javaProject);
+		}
+		schedule(SCHEDULE_DELAY);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		IJavaProject javaProject;
+		while ((javaProject = next()) != null) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			if (javaProject.exists()) {
+				IntentReflectionHelper helper = new IntentReflectionHelper(javaProject);
+				helper.getActionIndex();
+				helper.getCategoryIndex();
+				PlatformConstantIndex platforms = helper.getPlatformConstants();
+				platforms.getActionIndex();
+				platforms.getCategoryIndex();
+			}
+		}
+		return Status.OK_STATUS;
+	}
+
+	private IJavaProject next() {
+		synchronized (pending) {
+			if (pending.isEmpty()) {
+				return null;
+			}
+			IJavaProject next = pending.iterator().next();
+			pending.remove(next);
+			return next;
+		}
+	}
+
+	/**
+	 * @param project project to check
+	 * @return true if the project is open and has the Android nature
+	 */
+	static boolean isAndroidProject(IProject project) {
+		try {
+			return project.isOpen() && project.hasNature(ANDROID_NATURE);
+		} catch (CoreException e) {
+			return false;
+		}
+	}
+}
@@ -16,35 +16,28 @@
 package com.jayway.eclipse.adt.extensions.ui.wizards;
 
 import java.io.File;
-import java.lang.reflect.Field;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
 import java.util.Set;
-import java.util.TreeSet;
 
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jdt.core.IClasspathContainer;
-import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.launching.JavaRuntime;
 
 /**
- * Helper for getting the Intent categories and actions from the Intent.class via reflection.
+ * Helper for getting the Intent categories and actions from the Intent.class of the android.jar.
+ * The constants are shared between all helpers through the {@link IntentConstantsCache}.
+ * Also gives the {@link ActivityMethodCatalog} of the android.jar and the
+ * {@link PlatformConstantIndex} of all installed platforms.
  * @author Michael Kober
  *
  */
 public class IntentReflectionHelper {
 	
-	private static final String ACTION_PREFIX = "ACTION_";
-	private static final String CATEGORY_PREFIX = "CATEGORY_";
+	private static final String PLATFORMS_DIR = "platforms";
 	
-	private final Set<String> categories = new TreeSet<String>();
-	private final Set<String> actions = new TreeSet<String>();
 	private final IJavaProject javaProject;
+	private IntentConstants constants = null;
+	private ActivityMethodCatalog activityMethods = null;
+	private PlatformConstantIndex platformConstants = null;
 	
 	/**
 	 * Constructor.
@@ -59,10 +52,7 @@ public class IntentReflectionHelper {
 	 * @return Set of intent categories.
 	 */
 	public Set<String> getCategories() {
-		if (categories.isEmpty()) {
-			init();
-		}
-		return categories;
+		return getConstants().getCategories();
 	}
 	
 	/**
@@ -70,87 +60,108 @@ public class IntentReflectionHelper {
 	 * @return Set of intent actions.
 	 */
 	public Set<String> getActions() {
-		if (actions.isEmpty()) {
-			init();
-		}
-		return actions;
+		return getConstants().getActions();
 	}
 	
 	/**
-	 * Get categories and actions from the Intent.class
+	 * Get constants of the android.jar other than actions and categories.
+	 * @param target target of the {@link ConstantExtractor}, e.g. {@link IntentConstants#PERMISSIONS}
+	 * @return Set of constants, empty if the android.jar can not be read
 	 */
-	private void init() {
-		try {
-			ClassLoader classLoader = IntentReflectionHelper.class.getClassLoader();
-			File androidJar = new File(getAndroidJarFromClasspath(javaProject));
-			URL url = androidJar.toURI().toURL();
-			URL[] urls = new URL[] { url };
-			URLClassLoader urlCL = new URLClassLoader(urls, classLoader);
-			Class intent = Class.forName("android.content.Intent", true, urlCL);
-			Field[] declaredFields = intent.getDeclaredFields();
-			for (Field field : declaredFields) {
-				if (field.getName().startsWith(CATEGORY_PREFIX)) {
-					categories.add((String) field.get(null));
-				} else if (field.getName().startsWith(ACTION_PREFIX)) {
-					actions.add((String) field.get(null));
+	public Set<String> getConstants(String target) {
+		return getConstants().get(target);
+	}
+	
+	/**
+	 * Get the search index of the intent categories.
+	 * @return category index
+	 */
+	public ConstantSearchIndex getCategoryIndex() {
+		return getConstants().getCategoryIndex();
+	}
+	
+	/**
+	 * Get the search index of the intent actions.
+	 * @return action index
+	 */
+	public ConstantSearchIndex getActionIndex() {
+		return getConstants().getActionIndex();
+	}
+	
+	/**
+	 * Get the constants of all SDK platforms installed next to the platform
+	 * of the project, with the API levels declaring them.
+	 * @return merged index, only the project platform if it is not part of an SDK
+	 */
+	public PlatformConstantIndex getPlatformConstants() {
+		if (platformConstants == null) {
+			try {
+				File androidJar = new File(getAndroidJarFromClasspath(javaProject));
+				File platformDir = androidJar.getParentFile();
+				File platformsDir = platformDir != null ? platformDir.getParentFile() : null;
+				if (platformsDir != null && PLATFORMS_DIR.equals(platformsDir.getName())) {
+					platformConstants = PlatformConstantsCache.getDefault().get(platformsDir);
+				} else {
+					platformConstants = new PlatformConstantIndex(Collections.singletonMap(
+							Integer.valueOf(PlatformConstantsCache.apiLevel(platformDir)), getConstants()));
 				}
+			} catch (Exception e) {
+				Probes.failed(Probes.Phase.JAR_SCAN, e);
+				platformConstants = PlatformConstantIndex.EMPTY;
+			}
+		}
+		return platformConstants;
+	}
+	
+	/**
+	 * Get the overridable callbacks of android.app.Activity.
+	 * @return catalog, the default lifecycle methods if the android.jar can not be read
+	 */
+	public ActivityMethodCatalog getActivityMethods() {
+		if (activityMethods == null) {
+			try {
+				activityMethods = ActivityMethodCatalog.get(new File(getAndroidJarFromClasspath(javaProject)));
+			} catch (Exception e) {
+				Probes.failed(Probes.Phase.JAR_SCAN, e);
+				activityMethods = ActivityMethodCatalog.DEFAULT;
+			}
+		}
+		return activityMethods;
+	}
+	
+	/**
+	 * Get the constants from the cache, the android.jar is only read if it
+	 * is not cached yet.
+	 * @return intent constants, empty if the android.jar can not be read
+	 */
+	private IntentConstants getConstants() {
+		if (constants == null) {
+			try {
+				File androidJar = new File(getAndroidJarFromClasspath(javaProject));
+				constants = IntentConstantsCache.getDefault().get(androidJar);
+			} catch (Exception e) {
+				// actions and intents will remain empty
+				Probes.failed(Probes.Phase.JAR_SCAN, e);
+				constants = IntentConstants.EMPTY;
 			}
-		} catch (Exception e) {
-			// actions and intents will remain empty
-			e.printStackTrace();
 		}
+		return constants;
 	}
 
 	
 	/**
-	 * Get the android.jar from the classpath. 
+	 * Get the android.jar from the classpath, see {@link AndroidJarResolver}.
 	 * @param javaProject current project
 	 * @return classpathentry for the android.jar or null if not found
 	 */
 	private String getAndroidJarFromClasspath(IJavaProject javaProject) {
 		String result = null;
 		try {
-			String[] classpathEntries = getJavaClasspath(javaProject);
-			for (String entry : classpathEntries) {
-				if (entry.contains("android.jar")) {
-					result = entry;
-					break;
-				}
-			}
+			result = AndroidJarResolver.getDefault().find(javaProject);
 		} catch (CoreException e) {
 			// result will be null
+			Probes.failed(Probes.Phase.CLASSPATH_RESOLUTION, e);
 		}
 		return result;
 	}
-	
-	/**
-	 * Get all classpathentries for the given project.
-	 * @param javaProject project to get the classpath for.
-	 * @return classpathentries
-	 */
-	private String[] getJavaClasspath(IJavaProject javaProject)
-			throws CoreException {
-		List<String> classPath = new ArrayList<String>();
-		String[] defaultClassPath = JavaRuntime
-				.computeDefaultRuntimeClassPath(javaProject);
-		classPath.addAll(Arrays.asList(defaultClassPath));
-
-		// add CPE_CONTAINER classpathes
-		IClasspathEntry[] rawClasspath = javaProject.getRawClasspath();
-		for (IClasspathEntry entry : rawClasspath) {
-			if (entry.getEntryKind() == IClasspathEntry.CPE_CONTAINER) {
-				IClasspathContainer classpathContainer = JavaCore
-						.getClasspathContainer(entry.getPath(), javaProject);
-				if (classpathContainer != null) {
-					IClasspathEntry[] classpathEntries = classpathContainer
-							.getClasspathEntries();
-					for (IClasspathEntry cEntry : classpathEntries) {
-						classPath.add(cEntry.getPath().toOSString());
-					}
-				}
-			}
-		}
-		return classPath.toArray(new String[] {});
-	}
-
 }
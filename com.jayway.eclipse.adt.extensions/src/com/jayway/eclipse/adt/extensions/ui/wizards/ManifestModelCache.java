@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import com.jayway.eclipse.adt.xml.ManifestSnapshot;
+
+/**
+ * Keeps the parsed manifest of the most recently used projects, keyed by the
+ * modification stamp of the manifest file. Entries are dropped when the file
+ * is changed outside of this plugin, deleted, or its project is closed. The
+ * cached snapshots are immutable and can be shared between threads.
+ * @author Michael Kober
+ *
+ */
+public class ManifestModelCache implements IResourceChangeListener {
+
+	private static final int MAX_ENTRIES = 16;
+
+	private static ManifestModelCache instance = null;
+
+	private final Map<IFile, ManifestSnapshot> entries = new LinkedHashMap<IFile, ManifestSnapshot>(MAX_ENTRIES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IFile, ManifestSnapshot> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * Get the shared cache, registered as resource change listener on first use.
+	 * @return workspace wide cache
+	 */
+	public static synchronized ManifestModelCache getDefault() {
+		if (instance == null) {
+			instance = new ManifestModelCache();
+			ResourcesPlugin.getWorkspace().addResourceChangeListener(instance,
+					IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the parsed manifest, it is only parsed again if the file has changed.
+	 * The file is read and parsed without holding the lock of the cache, the
+	 * resource change listener is called with the workspace locked.
+	 * @param file manifest file
+	 * @return snapshot of the manifest
+	 * @throws IOException if the manifest can not be read
+	 */
+	public ManifestSnapshot get(IFile file) throws IOException {
+		synchronized (this) {
+			ManifestSnapshot snapshot = entries.get(file);
+			if (snapshot != null && snapshot.stamp() == file.getModificationStamp()) {
+				return snapshot;
+			}
+		}
+		ManifestSnapshot snapshot;
+		Probes.Probe probe = Probes.start(Probes.Phase.MANIFEST_PARSE);
+		try {
+			snapshot = new WorkspaceManifestStore(file).read();
+		} finally {
+			Probes.end(probe);
+		}
+		synchronized (this) {
+			// keep an entry that was put concurrently for the current version
+			ManifestSnapshot current = entries.get(file);
+			if (current == null || current.stamp() != file.getModificationStamp()) {
+				entries.put(file, snapshot);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Record a manifest committed by this plugin, so our own edits never
+	 * cause a parse. An outdated snapshot is dropped by the next get.
+	 * @param file manifest file
+	 * @param snapshot committed snapshot, stamped with the new modification stamp
+	 */
+	public synchronized void updated(IFile file, ManifestSnapshot snapshot) {
+		entries.put(file, snapshot);
+	}
+
+	/**
+	 * Drop all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	public synchronized void resourceChanged(IResourceChangeEvent event) {
+		if (entries.isEmpty()) {
+			return;
+		}
+		if (event.getType() == IResourceChangeEvent.POST_CHANGE) {
+			removeChanged(event.getDelta());
+		} else if (event.getResource() != null) {
+			removeProject(event.getResource());
+		}
+	}
+
+	private void removeChanged(IResourceDelta delta) {
+		List<IFile> changed = new ArrayList<IFile>();
+		for (Map.Entry<IFile, ManifestSnapshot> entry : entries.entrySet()) {
+			IFile file = entry.getKey();
+			IResourceDelta fileDelta = delta.findMember(file.getFullPath());
+			if (fileDelta == null) {
+				continue;
+			}
+			if (fileDelta.getKind() == IResourceDelta.REMOVED
+					|| file.getModificationStamp() != entry.getValue().stamp()) {
+				changed.add(file);
+			}
+		}
+		for (IFile file : changed) {
+			entries.remove(file);
+		}
+	}
+
+	private void removeProject(IResource project) {
+		for (Iterator<IFile> files = entries.keySet().iterator(); files.hasNext();) {
+			if (project.equals(files.next().getProject())) {
+				files.remove();
+			}
+		}
+	}
+}
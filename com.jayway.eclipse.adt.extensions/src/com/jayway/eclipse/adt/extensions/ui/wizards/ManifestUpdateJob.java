@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.List;
+
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+import com.jayway.eclipse.adt.xml.ActivitySpec;
+
+/**
+ * Adds activities to the Android manifest in the background. The job holds
+ * no scheduling rule, only the commit of the manifest locks the manifest
+ * file. Failures are reported by the job framework without blocking the
+ * workbench.
+ * @author Michael Kober
+ *
+ */
+public class ManifestUpdateJob extends WorkspaceJob {
+
+	private final AndroidManifestFile manifest;
+	private final List<ActivitySpec> activities;
+
+	/**
+	 * Constructor.
+	 * @param manifest manifest to update
+	 * @param activities activities to add
+	 */
+	public ManifestUpdateJob(AndroidManifestFile manifest, List<ActivitySpec> activities) {
+		super("Updating Android manifest");
+		this.manifest = manifest;
+		this.activities = activities;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.WorkspaceJob#runInWorkspace(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+		monitor.beginTask("Updating Android manifest", IProgressMonitor.UNKNOWN);
+		try {
+			manifest.updateAll(activities, monitor);
+			return Status.OK_STATUS;
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (CoreException e) {
+			return new Status(IStatus.ERROR, ImageConstants.ID, "Error when updating manifest: " + e.getMessage(), e);
+		} finally {
+			monitor.done();
+		}
+	}
+}
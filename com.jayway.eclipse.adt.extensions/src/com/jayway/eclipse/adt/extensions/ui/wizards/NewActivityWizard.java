@@ -15,18 +15,16 @@
  */
 package com.jayway.eclipse.adt.extensions.ui.wizards;
 
+import java.util.Collections;
 import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.internal.ui.wizards.NewElementWizard;
-import org.eclipse.jface.dialogs.ErrorDialog;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.ui.IWorkbench;
@@ -71,12 +69,8 @@ public class NewActivityWizard extends NewElementWizard {
 				String activityName = newActivityPage.getTypeName();
 				IJavaProject javaProject = newActivityPage.getJavaProject();
 				AndroidManifestFile manifest = new AndroidManifestFile(javaProject.getProject());
-				try {
-					manifest.update(activityName, selectedActions, selectedCategories);
-				} catch (CoreException e) {
-					Status status = new Status(IStatus.ERROR, "com.jayway.adt.extensions", e.getMessage());
-					ErrorDialog.openError(getShell(), "Error when updating manifest", e.getMessage(), status);
-				}
+				new ManifestUpdateJob(manifest, Collections.singletonList(
+						AndroidManifestFile.createSpec(activityName, selectedActions, selectedCategories))).schedule();
 				openResource((IFile) resource);
 			}
 		}
@@ -15,30 +15,49 @@
  */
 package com.jayway.eclipse.adt.extensions.ui.wizards;
 
-
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.NodeFinder;
+import org.eclipse.jdt.core.dom.rewrite.ASTRewrite;
+import org.eclipse.jdt.core.dom.rewrite.ListRewrite;
 import org.eclipse.jdt.ui.CodeGeneration;
 import org.eclipse.jdt.ui.wizards.NewTypeWizardPage;
 import org.eclipse.jface.dialogs.Dialog;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.events.SelectionAdapter;
-import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
-import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
+
+import com.jayway.eclipse.adt.extensions.ui.wizards.ActivitySourceGenerator.TypeNameResolver;
+import com.jayway.eclipse.adt.xml.ManifestSnapshot;
 
 /**
  * Wizard page for new android activity.
@@ -51,12 +70,7 @@ public class NewActivityWizardPage extends NewTypeWizardPage {
 	private static final String SETTINGS_CREATECONSTR = "create_constructor"; 
 	private static final String SETTINGS_CREATEUNIMPLEMENTED = "create_unimplemented";
 
-	private boolean isOnStart = false;
-	private boolean isOnRestart = false;
-	private boolean isOnResume = false;
-	private boolean isOnPause = false;
-	private boolean isOnStop = false;
-	private boolean isOnDestroy = false;
+	private volatile List<ActivityMethod> selectedMethods = Collections.emptyList();
 	private IJavaProject javaProject = null;
 	private Set<String> selectedCategories = null;
 	private Set<String> selectedActions = null;
@@ -88,8 +102,6 @@ public class NewActivityWizardPage extends NewTypeWizardPage {
 		initContainerPage(jelem);
 		initTypePage(jelem);
 		doStatusUpdate();
-		IntentReflectionHelper helper = new IntentReflectionHelper(javaProject);
-		helper.getCategories();
 	}
 
 	// ------ validation --------
@@ -114,6 +126,27 @@ public class NewActivityWizardPage extends NewTypeWizardPage {
 		doStatusUpdate();
 	}
 
+	/*
+	 * @see NewTypeWizardPage#typeNameChanged
+	 */
+	@Override
+	protected IStatus typeNameChanged() {
+		IStatus status = super.typeNameChanged();
+		if (status.getSeverity() < IStatus.WARNING && javaProject != null) {
+			String packageName = getPackageText();
+			String activityName = packageName.length() > 0 ? packageName + "." + getTypeName() : getTypeName();
+			try {
+				ManifestSnapshot manifest = new AndroidManifestFile(javaProject.getProject()).getManifest();
+				if (manifest != null && manifest.containsActivity(activityName)) {
+					return new Status(IStatus.WARNING, ImageConstants.ID, "The Android manifest already declares " + activityName + ".");
+				}
+			} catch (Exception e) {
+				// unreadable manifest, reported when the manifest is updated
+			}
+		}
+		return status;
+	}
+
 	// ------ UI --------
 
 	/*
@@ -137,7 +170,7 @@ public class NewActivityWizardPage extends NewTypeWizardPage {
 		createSuperClassControls(composite, nColumns);
 		setSuperClass("android.app.Activity", true);
 		createSuperInterfacesControls(composite, nColumns);
-		createMethodStubSelectionControls(composite, nColumns);
+		Table methodsTable = createMethodStubSelectionControls(composite, nColumns);
 
 		// createCommentControls(composite, nColumns);
 		setAddComments(true, false);
@@ -146,9 +179,73 @@ public class NewActivityWizardPage extends NewTypeWizardPage {
 		setControl(composite);
 		Dialog.applyDialogFont(composite);
 		
-		IntentReflectionHelper helper = new IntentReflectionHelper(javaProject);
-		createIntentActionsControl(composite, nColumns, helper.getActions());
-		createIntentCategoriesControl(composite, nColumns, helper.getCategories());
+		ElementListSelector actionsSelector = createIntentActionsControl(composite, nColumns);
+		ElementListSelector categoriesSelector = createIntentCategoriesControl(composite, nColumns);
+		loadFromAndroidJar(composite, methodsTable, actionsSelector, categoriesSelector);
+	}
+	
+	/**
+	 * Read the activity callbacks and intent constants in a background job
+	 * and fill the controls when done. The job is cancelled if the page is
+	 * disposed before, it stops between the steps. If reading fails the
+	 * controls leave their loading state without entries.
+	 */
+	private void loadFromAndroidJar(final Composite composite, final Table methodsTable,
+			final ElementListSelector actionsSelector, final ElementListSelector categoriesSelector) {
+		final Display display = composite.getDisplay();
+		final Job job = new Job("Reading Android intent constants") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					IntentReflectionHelper helper = new IntentReflectionHelper(javaProject);
+					final List<ActivityMethod> methods = helper.getActivityMethods().getMethods();
+					if (monitor.isCanceled()) {
+						return Status.CANCEL_STATUS;
+					}
+					final PlatformConstantIndex platforms = helper.getPlatformConstants();
+					if (monitor.isCanceled()) {
+						return Status.CANCEL_STATUS;
+					}
+					final boolean merged = platforms.getLevels().length > 1;
+					final ConstantSearchIndex actions = merged ? platforms.getActionIndex() : helper.getActionIndex();
+					final ConstantSearchIndex categories = merged ? platforms.getCategoryIndex() : helper.getCategoryIndex();
+					if (monitor.isCanceled()) {
+						return Status.CANCEL_STATUS;
+					}
+					display.asyncExec(new Runnable() {
+						public void run() {
+							if (!composite.isDisposed()) {
+								setActivityMethods(methodsTable, methods);
+								actionsSelector.setIndex(actions, platforms.getActionAnnotator());
+								categoriesSelector.setIndex(categories, platforms.getCategoryAnnotator());
+							}
+						}
+					});
+					return Status.OK_STATUS;
+				} catch (RuntimeException e) {
+					// leave the loading state, otherwise the controls wait forever
+					if (!display.isDisposed()) {
+						display.asyncExec(new Runnable() {
+							public void run() {
+								if (!composite.isDisposed()) {
+									setActivityMethods(methodsTable, Collections.<ActivityMethod>emptyList());
+									actionsSelector.setUnavailable();
+									categoriesSelector.setUnavailable();
+								}
+							}
+						});
+					}
+					return new Status(IStatus.ERROR, ImageConstants.ID, "Could not read the Android intent constants", e);
+				}
+			}
+		};
+		job.setSystem(true);
+		composite.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				job.cancel();
+			}
+		});
+		job.schedule();
 	}
 	
 
@@ -173,189 +270,136 @@ public class NewActivityWizardPage extends NewTypeWizardPage {
 		}
 	}
 
-	private void createMethodStubSelectionControls(Composite composite,
+	private Table createMethodStubSelectionControls(Composite composite,
 			int nColumns) {
 
 		Label label = new Label(composite, SWT.NONE);
-		label.setText("Which method stubs would you like to create?");
+		label.setText("Which method stubs would you like to create? onCreate(Bundle) is always created.");
 		label.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, true, false,
 				nColumns, 1));
 
-		Composite methodsComposite = new Composite(composite, SWT.NONE);
-		methodsComposite.setFont(composite.getFont());
-		GridLayout layout = new GridLayout(nColumns, true);
-		methodsComposite.setLayout(layout);
-		methodsComposite.setLayoutData(new GridData(SWT.CENTER, SWT.TOP, true, false, nColumns, 1));
-
-		Button onCreateCB = new Button(methodsComposite, SWT.CHECK);
-		onCreateCB.setText("onCreate()");
-		onCreateCB.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 1, 1));
-		onCreateCB.setSelection(true);
-		onCreateCB.setEnabled(false);
-
-		final Button onStartCB = new Button(methodsComposite, SWT.CHECK);
-		onStartCB.setText("onStart()");
-		onStartCB.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 1, 1));
-		onStartCB.addSelectionListener(new SelectionAdapter() {
-			@Override
-			public void widgetSelected(SelectionEvent e) {
-				isOnStart = onStartCB.getSelection();
-				
-			}
-		});
-
-		final Button onRestartCB = new Button(methodsComposite, SWT.CHECK);
-		onRestartCB.setText("onRestart()");
-		onRestartCB.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 1, 1));
-		onRestartCB.addSelectionListener(new SelectionAdapter() {
-			@Override
-			public void widgetSelected(SelectionEvent e) {
-				isOnRestart = onRestartCB.getSelection();
-			}
-		});
-
-		final Button onResumeCB = new Button(methodsComposite, SWT.CHECK);
-		onResumeCB.setText("onResume()");
-		onResumeCB.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 1, 1));
-		onResumeCB.addSelectionListener(new SelectionAdapter() {
-			@Override
-			public void widgetSelected(SelectionEvent e) {
-				isOnResume = onResumeCB.getSelection();
-			}
-		});
-
-		final Button onPauseCB = new Button(methodsComposite, SWT.CHECK);
-		onPauseCB.setText("onPause()");
-		onPauseCB.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 1, 1));
-		onPauseCB.addSelectionListener(new SelectionAdapter() {
-			@Override
-			public void widgetSelected(SelectionEvent e) {
-				isOnPause = onPauseCB.getSelection();
-			}
-		});
-
-		final Button onStopCB = new Button(methodsComposite, SWT.CHECK);
-		onStopCB.setText("onStop()");
-		onStopCB.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 1, 1));
-		onStopCB.addSelectionListener(new SelectionAdapter() {
-			@Override
-			public void widgetSelected(SelectionEvent e) {
-				isOnStop = onStopCB.getSelection();
+		final Table table = new Table(composite, SWT.CHECK | SWT.BORDER | SWT.V_SCROLL);
+		table.setFont(composite.getFont());
+		GridData gridData = new GridData(SWT.FILL, SWT.TOP, true, false, nColumns, 1);
+		gridData.heightHint = table.getItemHeight() * 6;
+		table.setLayoutData(gridData);
+		new TableItem(table, SWT.NONE).setText("(loading...)");
+		table.setEnabled(false);
+		table.addListener(SWT.Selection, new Listener() {
+			public void handleEvent(Event event) {
+				if (event.detail == SWT.CHECK) {
+					List<ActivityMethod> methods = new ArrayList<ActivityMethod>();
+					for (TableItem item : table.getItems()) {
+						if (item.getChecked()) {
+							methods.add((ActivityMethod) item.getData());
+						}
+					}
+					selectedMethods = methods;
+				}
 			}
 		});
+		return table;
+	}
 
-		final Button onDestroyCB = new Button(methodsComposite, SWT.CHECK);
-		onDestroyCB.setText("onDestroy()");
-		onDestroyCB.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, false, false, 1, 1));
-		onDestroyCB.addSelectionListener(new SelectionAdapter() {
-			@Override
-			public void widgetSelected(SelectionEvent e) {
-				isOnDestroy = onDestroyCB.getSelection();
+	/**
+	 * Show the callbacks of the catalog, except onCreate which is always created.
+	 */
+	private void setActivityMethods(Table table, List<ActivityMethod> methods) {
+		table.removeAll();
+		for (ActivityMethod method : methods) {
+			if (!method.isOnCreate()) {
+				TableItem item = new TableItem(table, SWT.NONE);
+				item.setText(method.getLabel());
+				item.setData(method);
 			}
-		});
+		}
+		table.setEnabled(true);
 	}
 
 	/*
 	 * @see NewTypeWizardPage#createTypeMembers
 	 */
-	protected void createTypeMembers(IType type, ImportsManager imports,
+	protected void createTypeMembers(IType type, final ImportsManager imports,
 			IProgressMonitor monitor) throws CoreException {
-		boolean doOnCreate = true;
 		boolean doConstr = false;
 		boolean doInherited = true;
 		createInheritedMethods(type, doConstr, doInherited, imports,
 				new SubProgressMonitor(monitor, 1));
 
-		if (doOnCreate) {
-			generateOnCreate(type, imports);
-		}
-		
-		if (isOnStart) {
-			generateStub("onStart", type, imports);
-		}
-		
-		if (isOnRestart) {
-			generateStub("onRestart", type, imports);
-		}
-		
-		if (isOnResume) {
-			generateStub("onResume", type, imports);
-		}
-		if (isOnPause) {
-			generateStub("onPause", type, imports);
-		}
-		
-		if (isOnStop) {
-			generateStub("onStop", type, imports);
-		}
-		
-		if (isOnDestroy) {
-			generateStub("onDestroy", type, imports);
+		final String lineDelim = "\n"; // OK, since content is formatted afterwards //$NON-NLS-1$
+		Probes.Probe probe = Probes.start(Probes.Phase.CODE_GENERATION);
+		try {
+			addMethods(type, createMethods(type, imports, lineDelim));
+		} finally {
+			Probes.end(probe);
 		}
-		
+
 		if (monitor != null) {
 			monitor.done();
 		}
 	}
 
-	private void generateOnCreate(IType type, ImportsManager imports) throws CoreException, JavaModelException {
-		StringBuilder buf = new StringBuilder();
-		final String lineDelim = "\n"; // OK, since content is formatted afterwards //$NON-NLS-1$
-		buf.append("/* (non-Javadoc)").append(lineDelim);
-		buf.append("* @see android.app.Activity#onCreate(android.os.Bundle)")
-				.append(lineDelim);
-		buf.append("*/").append(lineDelim);
-		buf.append("@Override");
-		buf.append(lineDelim);
-		buf.append("public void onCreate("); //$NON-NLS-1$
-		buf.append(imports.addImport("android.os.Bundle")); //$NON-NLS-1$
-		buf.append(" savedInstanceState) {"); //$NON-NLS-1$
-		buf.append(lineDelim);
-		buf.append("super.onCreate(savedInstanceState);");
-		buf.append(lineDelim);
-		final String content = CodeGeneration.getMethodBodyContent(type
-				.getCompilationUnit(), type.getTypeQualifiedName('.'),
-				"onCreate", false, "", lineDelim); //$NON-NLS-1$ //$NON-NLS-2$
-		if (content != null && content.length() != 0)
-			buf.append(content);
-		buf.append(lineDelim);
-		buf.append("}"); //$NON-NLS-1$
-		type.createMethod(buf.toString(), null, false, null);
+	private List<String> createMethods(IType type, final ImportsManager imports, String lineDelim)
+			throws CoreException {
+		List<String> methods = new ArrayList<String>();
+		methods.add(ActivitySourceGenerator.onCreate(imports.addImport("android.os.Bundle"), //$NON-NLS-1$
+				getBodyContent(type, "onCreate", lineDelim), lineDelim)); //$NON-NLS-1$
+		TypeNameResolver types = new TypeNameResolver() {
+			public String resolve(String qualifiedName) {
+				return imports.addImport(qualifiedName);
+			}
+		};
+		for (ActivityMethod method : selectedMethods) {
+			methods.add(ActivitySourceGenerator.override(method, types,
+					getBodyContent(type, method.getName(), lineDelim), lineDelim));
+		}
+		return methods;
 	}
 
-	private void generateStub(String method, IType type, ImportsManager imports) throws CoreException, JavaModelException {
-		StringBuilder buf = new StringBuilder();
-		final String lineDelim = "\n"; // OK, since content is formatted afterwards //$NON-NLS-1$
-		buf.append("/* (non-Javadoc)").append(lineDelim);
-		buf.append("* @see android.app.Activity#" + method + "()").append(lineDelim);
-		buf.append("*/").append(lineDelim);
-		buf.append("@Override");
-		buf.append(lineDelim);
-		buf.append("public void " + method + "() {"); //$NON-NLS-1$
-		buf.append(lineDelim);
-		buf.append("super." + method + "();");
-		buf.append(lineDelim);
-		final String content = CodeGeneration.getMethodBodyContent(type
-				.getCompilationUnit(), type.getTypeQualifiedName('.'),
-				method, false, "", lineDelim); //$NON-NLS-1$ //$NON-NLS-2$
-		if (content != null && content.length() != 0)
-			buf.append(content);
-		buf.append(lineDelim);
-		buf.append("}"); //$NON-NLS-1$
-		type.createMethod(buf.toString(), null, false, null);
+	private static String getBodyContent(IType type, String method, String lineDelim) throws CoreException {
+		return CodeGeneration.getMethodBodyContent(type.getCompilationUnit(), type.getTypeQualifiedName('.'),
+				method, false, "", lineDelim); //$NON-NLS-1$
+	}
+
+	/**
+	 * Insert all methods with one rewrite of the compilation unit, instead of
+	 * one {@link IType#createMethod} per method, each of which rewrites and
+	 * reconciles the whole unit. Imports are collected by the imports manager
+	 * and the type is formatted once when it is created.
+	 */
+	private void addMethods(IType type, List<String> methods) throws CoreException {
+		ICompilationUnit cu = type.getCompilationUnit();
+		ASTParser parser = ASTParser.newParser(AST.JLS3);
+		parser.setSource(cu);
+		parser.setResolveBindings(false);
+		CompilationUnit astRoot = (CompilationUnit) parser.createAST(null);
+		ASTNode name = NodeFinder.perform(astRoot, type.getNameRange());
+		if (name == null || !(name.getParent() instanceof AbstractTypeDeclaration)) {
+			Status status = new Status(IStatus.ERROR, ImageConstants.ID, "Could not find " + type.getElementName());
+			throw new CoreException(status);
+		}
+		AbstractTypeDeclaration declaration = (AbstractTypeDeclaration) name.getParent();
+		ASTRewrite rewrite = ASTRewrite.create(astRoot.getAST());
+		ListRewrite body = rewrite.getListRewrite(declaration, declaration.getBodyDeclarationsProperty());
+		for (String method : methods) {
+			body.insertLast(rewrite.createStringPlaceholder(method, ASTNode.METHOD_DECLARATION), null);
+		}
+		cu.applyTextEdit(rewrite.rewriteAST(), null);
 	}
 	
 	
-	private void createIntentCategoriesControl(final Composite composite, int nColumns, Set<String> categories) {
+	private ElementListSelector createIntentCategoriesControl(final Composite composite, int nColumns) {
 		GridData gridData = new GridData(SWT.FILL, SWT.TOP, true, false, nColumns, 1);
-		ElementListSelector selector = new ElementListSelector(composite, gridData, "Intent categories", "Select Intent categories", categories.toArray());
+		ElementListSelector selector = new ElementListSelector(composite, gridData, "Intent categories", "Select Intent categories");
 		selectedCategories = selector.getSelectedElements();
+		return selector;
 	}
 	
-	private void createIntentActionsControl(final Composite composite, int nColumns, Set<String> actions) {
+	private ElementListSelector createIntentActionsControl(final Composite composite, int nColumns) {
 		GridData gridData = new GridData(SWT.FILL, SWT.TOP, true, false, nColumns, 1);
-		ElementListSelector selector = new ElementListSelector(composite, gridData, "Intent actions", "Select Intent actions", actions.toArray());
+		ElementListSelector selector = new ElementListSelector(composite, gridData, "Intent actions", "Select Intent actions");
 		selectedActions = selector.getSelectedElements();
+		return selector;
 	}
 	
 	/**
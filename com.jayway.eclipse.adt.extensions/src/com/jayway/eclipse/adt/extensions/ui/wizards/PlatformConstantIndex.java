@@ -0,0 +1,221 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Intent constants of several SDK platforms merged into one index. Every
+ * constant string is stored once, with a bitset of the platforms declaring
+ * it, packed into a long array with one bit per platform.
+ * @author Michael Kober
+ *
+ */
+public final class PlatformConstantIndex {
+
+	/** Index without platforms. */
+	public static final PlatformConstantIndex EMPTY = new PlatformConstantIndex(new TreeMap<Integer, IntentConstants>());
+
+	private static final int BITS_PER_WORD = 64;
+
+	/** API levels of the platforms, ascending, the bit number is the position */
+	private final int[] levels;
+	private final int words;
+	private final Part actions;
+	private final Part categories;
+
+	/**
+	 * Constructor, merges the constants of all platforms.
+	 * @param platforms constants by API level
+	 */
+	public PlatformConstantIndex(Map<Integer, IntentConstants> platforms) {
+		SortedMap<Integer, IntentConstants> sorted = new TreeMap<Integer, IntentConstants>(platforms);
+		levels = new int[sorted.size()];
+		int i = 0;
+		for (Integer level : sorted.keySet()) {
+			levels[i++] = level.intValue();
+		}
+		words = Math.max(1, (levels.length + BITS_PER_WORD - 1) / BITS_PER_WORD);
+		IntentConstants[] constants = sorted.values().toArray(new IntentConstants[sorted.size()]);
+		Set<String> allActions = new TreeSet<String>();
+		Set<String> allCategories = new TreeSet<String>();
+		for (IntentConstants platform : constants) {
+			allActions.addAll(platform.getActions());
+			allCategories.addAll(platform.getCategories());
+		}
+		actions = new Part(allActions.toArray(new String[allActions.size()]));
+		categories = new Part(allCategories.toArray(new String[allCategories.size()]));
+		for (int bit = 0; bit < constants.length; bit++) {
+			actions.set(constants[bit].getActions(), bit);
+			categories.set(constants[bit].getCategories(), bit);
+		}
+	}
+
+	/**
+	 * @return API levels of the merged platforms, ascending
+	 */
+	public int[] getLevels() {
+		return levels.clone();
+	}
+
+	/**
+	 * @return actions of all platforms, sorted
+	 */
+	public List<String> getActions() {
+		return Collections.unmodifiableList(Arrays.asList(actions.values));
+	}
+
+	/**
+	 * @return categories of all platforms, sorted
+	 */
+	public List<String> getCategories() {
+		return Collections.unmodifiableList(Arrays.asList(categories.values));
+	}
+
+	/**
+	 * @param action intent action
+	 * @return API levels declaring the action, ascending
+	 */
+	public int[] getActionLevels(String action) {
+		return actions.levels(action);
+	}
+
+	/**
+	 * @param category intent category
+	 * @return API levels declaring the category, ascending
+	 */
+	public int[] getCategoryLevels(String category) {
+		return categories.levels(category);
+	}
+
+	/**
+	 * @return search index over the actions of all platforms
+	 */
+	public ConstantSearchIndex getActionIndex() {
+		return actions.index();
+	}
+
+	/**
+	 * @return search index over the categories of all platforms
+	 */
+	public ConstantSearchIndex getCategoryIndex() {
+		return categories.index();
+	}
+
+	/**
+	 * @return annotator describing the API levels of an action
+	 */
+	public ConstantAnnotator getActionAnnotator() {
+		return actions;
+	}
+
+	/**
+	 * @return annotator describing the API levels of a category
+	 */
+	public ConstantAnnotator getCategoryAnnotator() {
+		return categories;
+	}
+
+	/**
+	 * Describe API levels as ranges of consecutive platforms, e.g. "API 3-7, 9".
+	 * @param present levels declaring a constant, ascending
+	 * @return description, "all platforms" if no platform is missing
+	 */
+	String describe(int[] present) {
+		if (present.length == levels.length) {
+			return "all platforms";
+		}
+		StringBuilder buf = new StringBuilder("API ");
+		int start = 0;
+		for (int i = 1; i <= present.length; i++) {
+			// a range ends where the next present level is not the next platform
+			if (i == present.length || indexOf(present[i]) != indexOf(present[i - 1]) + 1) {
+				if (start > 0) {
+					buf.append(", ");
+				}
+				buf.append(present[start]);
+				if (i - 1 > start) {
+					buf.append('-').append(present[i - 1]);
+				}
+				start = i;
+			}
+		}
+		return buf.toString();
+	}
+
+	private int indexOf(int level) {
+		return Arrays.binarySearch(levels, level);
+	}
+
+	/**
+	 * Sorted constants of one kind with their platform bits.
+	 */
+	private final class Part implements ConstantAnnotator {
+		private final String[] values;
+		private final long[] bits;
+		private ConstantSearchIndex index = null;
+
+		Part(String[] values) {
+			this.values = values;
+			this.bits = new long[values.length * words];
+		}
+
+		void set(Set<String> present, int bit) {
+			for (String value : present) {
+				int i = Arrays.binarySearch(values, value);
+				bits[i * words + bit / BITS_PER_WORD] |= 1L << (bit % BITS_PER_WORD);
+			}
+		}
+
+		int[] levels(String value) {
+			int i = Arrays.binarySearch(values, value);
+			if (i < 0) {
+				return new int[0];
+			}
+			int count = 0;
+			for (int w = 0; w < words; w++) {
+				count += Long.bitCount(bits[i * words + w]);
+			}
+			int[] result = new int[count];
+			int next = 0;
+			for (int bit = 0; bit < levels.length; bit++) {
+				if ((bits[i * words + bit / BITS_PER_WORD] & (1L << (bit % BITS_PER_WORD))) != 0) {
+					result[next++] = levels[bit];
+				}
+			}
+			return result;
+		}
+
+		synchronized ConstantSearchIndex index() {
+			if (index == null) {
+				index = new ConstantSearchIndex(Arrays.asList(values));
+			}
+			return index;
+		}
+
+		public String annotate(String constant) {
+			int[] present = levels(constant);
+			return present.length > 0 && levels.length > 1 ? describe(present) : null;
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps a {@link PlatformConstantIndex} per SDK platforms directory. Each
+ * request only lists the directory; platform jars that are new or have
+ * changed are read in parallel, and the merged index is rebuilt only if
+ * the set of platforms has changed.
+ * @author Michael Kober
+ *
+ */
+public class PlatformConstantsCache {
+
+	private static final String SOURCE_PROPERTIES = "source.properties";
+	private static final String API_LEVEL_PROPERTY = "AndroidVersion.ApiLevel";
+	private static final String BUILD_PROP = "build.prop";
+	private static final String SDK_VERSION_PROPERTY = "ro.build.version.sdk";
+
+	private static PlatformConstantsCache instance = null;
+
+	private final IntentConstantsCache constantsCache;
+	private final Map<File, Platforms> entries = new HashMap<File, Platforms>();
+
+	/**
+	 * Constructor.
+	 * @param constantsCache cache for the constants of the single platforms
+	 */
+	public PlatformConstantsCache(IntentConstantsCache constantsCache) {
+		this.constantsCache = constantsCache;
+	}
+
+	/**
+	 * Get the shared cache, backed by the shared {@link IntentConstantsCache}.
+	 * @return workspace wide cache
+	 */
+	public static synchronized PlatformConstantsCache getDefault() {
+		if (instance == null) {
+			instance = new PlatformConstantsCache(IntentConstantsCache.getDefault());
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the merged index of all platforms in the given directory, picking
+	 * up platforms installed or removed since the last call.
+	 * @param platformsDir the platforms directory of the SDK
+	 * @return merged index, shared and immutable
+	 */
+	public synchronized PlatformConstantIndex get(File platformsDir) {
+		Platforms platforms = entries.get(platformsDir);
+		if (platforms == null) {
+			platforms = new Platforms();
+			entries.put(platformsDir, platforms);
+		}
+		Map<File, Integer> installed = findPlatforms(platformsDir);
+		boolean changed = platforms.jars.keySet().retainAll(installed.keySet());
+		List<File> toRead = new ArrayList<File>();
+		for (File jar : installed.keySet()) {
+			Platform platform = platforms.jars.get(jar);
+			if (platform == null || platform.stamp != stamp(jar)) {
+				toRead.add(jar);
+			}
+		}
+		if (!toRead.isEmpty()) {
+			for (Map.Entry<File, IntentConstants> read : readAll(toRead).entrySet()) {
+				File jar = read.getKey();
+				platforms.jars.put(jar, new Platform(installed.get(jar).intValue(), stamp(jar), read.getValue()));
+			}
+			changed = true;
+		}
+		if (changed || platforms.index == null) {
+			Map<Integer, IntentConstants> byLevel = new TreeMap<Integer, IntentConstants>();
+			for (Platform platform : platforms.jars.values()) {
+				// platforms of the same level, e.g. an add-on and its base platform, are merged
+				Integer level = Integer.valueOf(platform.level);
+				IntentConstants other = byLevel.get(level);
+				byLevel.put(level, other != null ? other.merge(platform.constants) : platform.constants);
+			}
+			platforms.index = new PlatformConstantIndex(byLevel);
+		}
+		return platforms.index;
+	}
+
+	/**
+	 * Read the constants of the given jars in parallel, one task per jar.
+	 * Jars that can not be read are left out.
+	 */
+	private Map<File, IntentConstants> readAll(List<File> jars) {
+		Map<File, IntentConstants> result = new HashMap<File, IntentConstants>();
+		int threads = Math.min(jars.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			Map<File, Future<IntentConstants>> futures = new HashMap<File, Future<IntentConstants>>();
+			for (final File jar : jars) {
+				futures.put(jar, executor.submit(new Callable<IntentConstants>() {
+					public IntentConstants call() throws IOException {
+						return constantsCache.get(jar);
+					}
+				}));
+			}
+			for (Map.Entry<File, Future<IntentConstants>> future : futures.entrySet()) {
+				try {
+					result.put(future.getKey(), future.getValue().get());
+				} catch (ExecutionException e) {
+					// unreadable platform, left out
+					Probes.failed(Probes.Phase.JAR_SCAN, e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return result;
+	}
+
+	/**
+	 * Drop all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Find the android.jar of every platform in the directory.
+	 * @param platformsDir the platforms directory of the SDK
+	 * @return jar to API level
+	 */
+	static Map<File, Integer> findPlatforms(File platformsDir) {
+		Map<File, Integer> result = new HashMap<File, Integer>();
+		File[] dirs = platformsDir.listFiles();
+		if (dirs == null) {
+			return result;
+		}
+		for (File dir : dirs) {
+			File jar = new File(dir, AndroidClasspath.ANDROID_JAR);
+			int level = apiLevel(dir);
+			if (level > 0 && jar.isFile()) {
+				result.put(jar, Integer.valueOf(level));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the API level of a platform from its source.properties or
+	 * build.prop, or from the digits of the directory name, e.g. android-8.
+	 * @param platformDir platform directory
+	 * @return API level or 0 if unknown
+	 */
+	static int apiLevel(File platformDir) {
+		String level = property(new File(platformDir, SOURCE_PROPERTIES), API_LEVEL_PROPERTY);
+		if (level == null) {
+			level = property(new File(platformDir, BUILD_PROP), SDK_VERSION_PROPERTY);
+		}
+		if (level == null) {
+			level = platformDir.getName().replaceAll("\\D", "");
+		}
+		try {
+			return Integer.parseInt(level.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static String property(File file, String key) {
+		if (!file.isFile()) {
+			return null;
+		}
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			Properties properties = new Properties();
+			properties.load(in);
+			return properties.getProperty(key);
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static long stamp(File jar) {
+		return jar.length() * 31 + jar.lastModified();
+	}
+
+	/**
+	 * Platforms of one directory and their merged index.
+	 */
+	private static final class Platforms {
+		private final Map<File, Platform> jars = new HashMap<File, Platform>();
+		private PlatformConstantIndex index = null;
+	}
+
+	/**
+	 * Constants of one platform jar.
+	 */
+	private static final class Platform {
+		private final int level;
+		private final long stamp;
+		private final IntentConstants constants;
+
+		Platform(int level, long stamp, IntentConstants constants) {
+			this.level = level;
+			this.stamp = stamp;
+			this.constants = constants;
+		}
+	}
+}
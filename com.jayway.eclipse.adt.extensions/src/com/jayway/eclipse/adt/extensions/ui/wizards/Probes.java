@@ -0,0 +1,357 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.osgi.framework.Bundle;
+
+/**
+ * Timing and allocation probes for the phases of the wizard and the manifest
+ * update. Disabled probes cost one volatile read: {@link #start(Phase)}
+ * returns null and {@link #end(Probe)} ignores it.
+ * <p>
+ * The probes are enabled by the tracing option {@value #OPTION_PROBES}, by
+ * the system property of the same name, or through the MBean
+ * {@value #OBJECT_NAME}. With {@value #OPTION_TRACE} every run is printed
+ * to the console as well.
+ * @author Michael Kober
+ *
+ */
+public final class Probes implements ProbesMBean {
+
+	/** Tracing option enabling the probes. */
+	public static final String OPTION_PROBES = ImageConstants.ID + "/debug/probes";
+	/** Tracing option printing every measured run. */
+	public static final String OPTION_TRACE = ImageConstants.ID + "/debug/probes/trace";
+	/** Name of the MBean. */
+	public static final String OBJECT_NAME = ImageConstants.ID + ":type=Probes";
+
+	private static final int BUCKETS = 24;
+
+	/**
+	 * Measured phases.
+	 */
+	public enum Phase {
+		/** finding the android.jar on the project classpath */
+		CLASSPATH_RESOLUTION("classpath resolution"),
+		/** reading constants and methods from an android.jar */
+		JAR_SCAN("jar scan"),
+		/** parsing AndroidManifest.xml */
+		MANIFEST_PARSE("manifest parse"),
+		/** splicing activities into AndroidManifest.xml, including the write */
+		MANIFEST_INSERT("manifest insert"),
+		/** generating the source of new activities */
+		CODE_GENERATION("code generation"),
+		/** refreshing a manifest changed outside of the workspace */
+		RESOURCE_REFRESH("resource refresh"),
+		/** checking the activities of a project against its manifest */
+		ACTIVITY_CHECK("activity check");
+
+		private final String label;
+
+		private Phase(String label) {
+			this.label = label;
+		}
+
+		/**
+		 * @return readable name of the phase
+		 */
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	private static final Probes INSTANCE = new Probes();
+
+	private volatile boolean enabled;
+	private volatile boolean trace;
+	private final Counters[] counters = new Counters[Phase.values().length];
+	private final Method allocatedBytes;
+	private final Object threadBean;
+
+	private Probes() {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new Counters();
+		}
+		threadBean = ManagementFactory.getThreadMXBean();
+		allocatedBytes = allocatedBytesMethod();
+		enabled = isOptionSet(OPTION_PROBES);
+		trace = isOptionSet(OPTION_TRACE);
+		register();
+	}
+
+	/**
+	 * @return the probes of this plugin
+	 */
+	public static Probes getDefault() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Start measuring a phase on the current thread.
+	 * @param phase phase
+	 * @return running probe, or null if the probes are disabled
+	 */
+	public static Probe start(Phase phase) {
+		return INSTANCE.enabled ? INSTANCE.new Probe(phase) : null;
+	}
+
+	/**
+	 * Stop measuring a phase.
+	 * @param probe probe returned by {@link #start(Phase)}, may be null
+	 */
+	public static void end(Probe probe) {
+		if (probe != null) {
+			probe.end();
+		}
+	}
+
+	/**
+	 * Count a failed run of a phase and log the cause to the error log.
+	 * @param phase phase
+	 * @param e cause
+	 */
+	public static void failed(Phase phase, Throwable e) {
+		INSTANCE.counters[phase.ordinal()].failures.incrementAndGet();
+		log(new Status(IStatus.WARNING, ImageConstants.ID, phase.getLabel() + " failed: " + e.getMessage(), e));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#isEnabled()
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#setEnabled(boolean)
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#getPhases()
+	 */
+	public String[] getPhases() {
+		Phase[] phases = Phase.values();
+		String[] names = new String[phases.length];
+		for (int i = 0; i < phases.length; i++) {
+			names[i] = phases[i].name();
+		}
+		return names;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#getCount(java.lang.String)
+	 */
+	public long getCount(String phase) {
+		return counters(phase).count.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#getFailures(java.lang.String)
+	 */
+	public long getFailures(String phase) {
+		return counters(phase).failures.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#getTotalMicros(java.lang.String)
+	 */
+	public long getTotalMicros(String phase) {
+		return counters(phase).nanos.get() / 1000;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#getMaxMicros(java.lang.String)
+	 */
+	public long getMaxMicros(String phase) {
+		return counters(phase).maxNanos.get() / 1000;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#getAllocatedBytes(java.lang.String)
+	 */
+	public long getAllocatedBytes(String phase) {
+		return allocatedBytes != null ? counters(phase).bytes.get() : -1;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#getHistogram(java.lang.String)
+	 */
+	public long[] getHistogram(String phase) {
+		AtomicLongArray histogram = counters(phase).histogram;
+		long[] result = new long[histogram.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#getReport()
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		for (Phase phase : Phase.values()) {
+			String name = phase.name();
+			report.append(phase.getLabel()).append(": ").append(getCount(name)).append(" runs, ")
+					.append(getFailures(name)).append(" failed, ")
+					.append(getTotalMicros(name)).append(" us total, ")
+					.append(getMaxMicros(name)).append(" us max, ")
+					.append(getAllocatedBytes(name)).append(" bytes\n");
+		}
+		return report.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.extensions.ui.wizards.ProbesMBean#reset()
+	 */
+	public void reset() {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new Counters();
+		}
+	}
+
+	private Counters counters(String phase) {
+		return counters[Phase.valueOf(phase).ordinal()];
+	}
+
+	private long allocatedBytes() {
+		if (allocatedBytes == null) {
+			return 0;
+		}
+		try {
+			return ((Long) allocatedBytes.invoke(threadBean, Long.valueOf(Thread.currentThread().getId()))).longValue();
+		} catch (Exception e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * The allocation counter of HotSpot VMs is not part of the Java API.
+	 */
+	private Method allocatedBytesMethod() {
+		try {
+			Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes",
+					long.class);
+			return ((Long) method.invoke(threadBean, Long.valueOf(Thread.currentThread().getId()))).longValue() >= 0
+					? method : null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(this, name);
+			}
+		} catch (JMException e) {
+			// probes stay usable through the tracing options
+		}
+	}
+
+	private static boolean isOptionSet(String option) {
+		if (Boolean.getBoolean(option)) {
+			return true;
+		}
+		try {
+			return "true".equalsIgnoreCase(Platform.getDebugOption(option));
+		} catch (RuntimeException e) {
+			// not running in OSGi
+			return false;
+		}
+	}
+
+	private static void log(IStatus status) {
+		Bundle bundle = null;
+		try {
+			bundle = Platform.getBundle(ImageConstants.ID);
+		} catch (RuntimeException e) {
+			// not running in OSGi
+		}
+		if (bundle != null) {
+			Platform.getLog(bundle).log(status);
+		} else {
+			System.err.println(status.getMessage());
+		}
+	}
+
+	/**
+	 * Running measurement of one phase on one thread.
+	 */
+	public final class Probe {
+		private final Phase phase;
+		private final long startNanos;
+		private final long startBytes;
+
+		Probe(Phase phase) {
+			this.phase = phase;
+			this.startBytes = allocatedBytes();
+			this.startNanos = System.nanoTime();
+		}
+
+		void end() {
+			long nanos = System.nanoTime() - startNanos;
+			long bytes = allocatedBytes() - startBytes;
+			counters[phase.ordinal()].add(nanos, bytes);
+			if (trace) {
+				System.out.println("[" + ImageConstants.ID + "] " + phase.getLabel() + ": " + nanos / 1000 + " us, "
+						+ bytes + " bytes");
+			}
+		}
+	}
+
+	/**
+	 * Counters of one phase.
+	 */
+	private static final class Counters {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		void add(long runNanos, long runBytes) {
+			count.incrementAndGet();
+			nanos.addAndGet(runNanos);
+			bytes.addAndGet(runBytes);
+			long max;
+			while (runNanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, runNanos)) {
+				// retry
+			}
+			long micros = runNanos / 1000;
+			int bucket = 64 - Long.numberOfLeadingZeros(micros);
+			histogram.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+/**
+ * Management interface of the {@link Probes}, registered as
+ * {@value Probes#OBJECT_NAME}. Phases are identified by the names of
+ * {@link Probes.Phase}, e.g. {@code JAR_SCAN}.
+ * @author Michael Kober
+ *
+ */
+public interface ProbesMBean {
+
+	/**
+	 * @return true if the phases are measured
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Switch the measurements on or off, the counters are kept.
+	 * @param enabled true to measure the phases
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * @return names of all phases
+	 */
+	String[] getPhases();
+
+	/**
+	 * @param phase phase name
+	 * @return number of measured runs of the phase
+	 */
+	long getCount(String phase);
+
+	/**
+	 * @param phase phase name
+	 * @return number of failed runs of the phase, counted even if disabled
+	 */
+	long getFailures(String phase);
+
+	/**
+	 * @param phase phase name
+	 * @return total time of the phase in microseconds
+	 */
+	long getTotalMicros(String phase);
+
+	/**
+	 * @param phase phase name
+	 * @return longest run of the phase in microseconds
+	 */
+	long getMaxMicros(String phase);
+
+	/**
+	 * @param phase phase name
+	 * @return bytes allocated by the phase, or -1 if the VM can not measure them
+	 */
+	long getAllocatedBytes(String phase);
+
+	/**
+	 * Histogram of the run times, bucket i counts the runs shorter than
+	 * 2^i microseconds and not counted in bucket i - 1.
+	 * @param phase phase name
+	 * @return bucket counts
+	 */
+	long[] getHistogram(String phase);
+
+	/**
+	 * @return one line per phase with count, total, max and allocation
+	 */
+	String getReport();
+
+	/**
+	 * Reset all counters.
+	 */
+	void reset();
+}
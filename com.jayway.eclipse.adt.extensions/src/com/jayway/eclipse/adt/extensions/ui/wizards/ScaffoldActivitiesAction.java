@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.dialogs.ErrorDialog;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.IObjectActionDelegate;
+import org.eclipse.ui.IWorkbenchPart;
+
+/**
+ * Popup action on {@code .activities} spec files, creates all activities of
+ * the spec in the project of the file.
+ * @author Michael Kober
+ *
+ */
+public class ScaffoldActivitiesAction implements IObjectActionDelegate {
+
+	private IWorkbenchPart part = null;
+	private IFile specFile = null;
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IObjectActionDelegate#setActivePart(org.eclipse.jface.action.IAction, org.eclipse.ui.IWorkbenchPart)
+	 */
+	public void setActivePart(IAction action, IWorkbenchPart targetPart) {
+		part = targetPart;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IActionDelegate#selectionChanged(org.eclipse.jface.action.IAction, org.eclipse.jface.viewers.ISelection)
+	 */
+	public void selectionChanged(IAction action, ISelection selection) {
+		specFile = null;
+		if (selection instanceof IStructuredSelection) {
+			Object element = ((IStructuredSelection) selection).getFirstElement();
+			if (element instanceof IFile) {
+				specFile = (IFile) element;
+			}
+		}
+		action.setEnabled(specFile != null);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.IActionDelegate#run(org.eclipse.jface.action.IAction)
+	 */
+	public void run(IAction action) {
+		if (specFile == null) {
+			return;
+		}
+		final IJavaProject javaProject = JavaCore.create(specFile.getProject());
+		final ScaffoldSpec spec;
+		try {
+			spec = readSpec(specFile);
+		} catch (CoreException e) {
+			ErrorDialog.openError(part.getSite().getShell(), "Scaffold Activities",
+					"Could not read " + specFile.getName(), e.getStatus());
+			return;
+		}
+		Job job = new Job("Creating activities from " + specFile.getName()) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					new BulkActivityScaffolder(javaProject, spec).scaffold(monitor);
+					return Status.OK_STATUS;
+				} catch (OperationCanceledException e) {
+					return Status.CANCEL_STATUS;
+				} catch (CoreException e) {
+					return new Status(IStatus.ERROR, ImageConstants.ID, "Error when creating activities: "
+							+ e.getMessage(), e);
+				}
+			}
+		};
+		job.setRule(javaProject.getProject());
+		job.setUser(true);
+		job.schedule();
+	}
+
+	private static ScaffoldSpec readSpec(IFile file) throws CoreException {
+		Reader reader;
+		try {
+			reader = new InputStreamReader(file.getContents(), file.getCharset());
+		} catch (UnsupportedEncodingException e) {
+			throw new CoreException(new Status(IStatus.ERROR, ImageConstants.ID, e.getMessage(), e));
+		}
+		try {
+			return ScaffoldSpec.parse(reader);
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
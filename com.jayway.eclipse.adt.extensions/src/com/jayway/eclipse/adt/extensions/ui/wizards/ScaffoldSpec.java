@@ -0,0 +1,192 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.JavaConventions;
+import org.eclipse.jdt.core.JavaCore;
+
+import com.jayway.eclipse.adt.xml.ActivitySpec;
+
+/**
+ * Spec for scaffolding many activities at once, read from a
+ * {@code .activities} file:
+ * <pre>
+ * # comment
+ * package com.example.ui
+ * MainActivity stubs=onStart,onResume actions=android.intent.action.MAIN categories=android.intent.category.LAUNCHER
+ * DetailsActivity stubs=onPause
+ * </pre>
+ * @author Michael Kober
+ *
+ */
+public class ScaffoldSpec {
+
+	private static final String PACKAGE = "package";
+	private static final String STUBS = "stubs";
+	private static final String ACTIONS = "actions";
+	private static final String CATEGORIES = "categories";
+
+	private final String packageName;
+	private final List<Entry> entries;
+
+	private ScaffoldSpec(String packageName, List<Entry> entries) {
+		this.packageName = packageName;
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Parse a spec.
+	 * @param reader spec content, not closed
+	 * @return spec
+	 * @throws CoreException if the spec is malformed or can not be read
+	 */
+	public static ScaffoldSpec parse(Reader reader) throws CoreException {
+		String packageName = null;
+		List<Entry> entries = new ArrayList<Entry>();
+		BufferedReader in = new BufferedReader(reader);
+		int lineNumber = 0;
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				String[] tokens = line.split("\\s+");
+				if (PACKAGE.equals(tokens[0])) {
+					if (tokens.length != 2) {
+						throw error(lineNumber, "expected 'package <name>'");
+					}
+					check(JavaConventions.validatePackageName(tokens[1], JavaCore.VERSION_1_5, JavaCore.VERSION_1_5),
+							lineNumber);
+					packageName = tokens[1];
+				} else {
+					entries.add(parseEntry(tokens, lineNumber));
+				}
+			}
+		} catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, ImageConstants.ID, e.getMessage(), e));
+		}
+		if (packageName == null) {
+			throw error(lineNumber, "missing 'package <name>'");
+		}
+		return new ScaffoldSpec(packageName, entries);
+	}
+
+	private static Entry parseEntry(String[] tokens, int lineNumber) throws CoreException {
+		if (tokens[0].indexOf('.') >= 0) {
+			throw error(lineNumber, "expected a simple type name but was '" + tokens[0] + "'");
+		}
+		check(JavaConventions.validateJavaTypeName(tokens[0], JavaCore.VERSION_1_5, JavaCore.VERSION_1_5), lineNumber);
+		Entry entry = new Entry(tokens[0]);
+		for (int i = 1; i < tokens.length; i++) {
+			int separator = tokens[i].indexOf('=');
+			if (separator <= 0) {
+				throw error(lineNumber, "expected key=value but was '" + tokens[i] + "'");
+			}
+			String key = tokens[i].substring(0, separator);
+			List<String> values = Arrays.asList(tokens[i].substring(separator + 1).split(","));
+			if (STUBS.equals(key)) {
+				entry.stubs.addAll(values);
+			} else if (ACTIONS.equals(key)) {
+				entry.actions.addAll(values);
+			} else if (CATEGORIES.equals(key)) {
+				entry.categories.addAll(values);
+			} else {
+				throw error(lineNumber, "unknown key '" + key + "'");
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Report names that JDT rejects, warnings such as lower case type names are accepted.
+	 */
+	private static void check(IStatus status, int lineNumber) throws CoreException {
+		if (status.getSeverity() == IStatus.ERROR) {
+			throw error(lineNumber, status.getMessage());
+		}
+	}
+
+	private static CoreException error(int lineNumber, String message) {
+		return new CoreException(new Status(IStatus.ERROR, ImageConstants.ID, "Line " + lineNumber + ": " + message));
+	}
+
+	/**
+	 * @return package of the activities
+	 */
+	public String getPackageName() {
+		return packageName;
+	}
+
+	/**
+	 * @return activities to create
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * One activity of the spec.
+	 */
+	public static class Entry {
+		private final String name;
+		private final Set<String> stubs = new LinkedHashSet<String>();
+		private final Set<String> actions = new LinkedHashSet<String>();
+		private final Set<String> categories = new LinkedHashSet<String>();
+
+		Entry(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return simple type name of the activity
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return names of the callbacks to override, see {@link ActivityMethodCatalog#find(String)}
+		 */
+		public Set<String> getStubs() {
+			return stubs;
+		}
+
+		/**
+		 * Get the manifest entry of the activity.
+		 * @param packageName package of the activity
+		 * @return activity spec with the fully qualified name
+		 */
+		public ActivitySpec toActivitySpec(String packageName) {
+			return AndroidManifestFile.createSpec(packageName + "." + name, actions, categories);
+		}
+	}
+}
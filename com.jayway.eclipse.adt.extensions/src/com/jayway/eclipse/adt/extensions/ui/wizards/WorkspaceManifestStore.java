@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.extensions.ui.wizards;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.jayway.eclipse.adt.xml.ManifestSnapshot;
+import com.jayway.eclipse.adt.xml.ManifestStore;
+import com.jayway.eclipse.adt.xml.ManifestTape;
+
+/**
+ * Manifest store of a workspace file, stamped with the modification stamp of
+ * the file. Reading and editing need no lock, only the compare and write of
+ * a commit holds the scheduling rule of the manifest file.
+ * @author Michael Kober
+ *
+ */
+public class WorkspaceManifestStore extends ManifestStore {
+
+	private final IFile file;
+
+	/**
+	 * Constructor.
+	 * @param file manifest file
+	 */
+	public WorkspaceManifestStore(IFile file) {
+		this.file = file;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.xml.ManifestStore#read()
+	 */
+	@Override
+	public ManifestSnapshot read() throws IOException {
+		try {
+			if (!file.isSynchronized(IResource.DEPTH_ZERO)) {
+				Probes.Probe probe = Probes.start(Probes.Phase.RESOURCE_REFRESH);
+				try {
+					file.refreshLocal(IResource.DEPTH_ZERO, null);
+				} finally {
+					Probes.end(probe);
+				}
+			}
+			long stamp = file.getModificationStamp();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			InputStream in = file.getContents(true);
+			try {
+				byte[] buffer = new byte[8192];
+				int n;
+				while ((n = in.read(buffer)) != -1) {
+					out.write(buffer, 0, n);
+				}
+			} finally {
+				in.close();
+			}
+			return new ManifestSnapshot(new ManifestTape(out.toByteArray(), out.size()), stamp);
+		} catch (CoreException e) {
+			throw asIOException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.jayway.eclipse.adt.xml.ManifestStore#compareAndSet(long, com.jayway.eclipse.adt.xml.ManifestTape)
+	 */
+	@Override
+	public long compareAndSet(final long expectedStamp, ManifestTape tape) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(tape.size());
+		tape.write(out);
+		final byte[] content = out.toByteArray();
+		final long[] stamp = { -1 };
+		try {
+			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+				public void run(IProgressMonitor monitor) throws CoreException {
+					if (file.getModificationStamp() == expectedStamp) {
+						file.setContents(new ByteArrayInputStream(content), IResource.KEEP_HISTORY, monitor);
+						stamp[0] = file.getModificationStamp();
+					}
+				}
+			}, file, IWorkspace.AVOID_UPDATE, null);
+		} catch (CoreException e) {
+			throw asIOException(e);
+		}
+		return stamp[0];
+	}
+
+	private static IOException asIOException(CoreException e) {
+		IOException exception = new IOException(e.getMessage());
+		exception.initCause(e);
+		return exception;
+	}
+}
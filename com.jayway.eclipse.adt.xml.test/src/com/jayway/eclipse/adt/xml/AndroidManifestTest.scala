@@ -57,5 +57,31 @@ class AndroidManifestTest extends Spec with ShouldMatchers {
         assert(changedXml.toString().contains("MyActivity"))
      }
 	
+	it("should add several activities with one load") {
+		val activities = ActivitySpec("FirstActivity", Nil, Nil) :: ActivitySpec("SecondActivity", "android.intent.action.VIEW" :: Nil, Nil) :: Nil
+		val changedXml = manifest.addActivities(activities)
+		assert((changedXml \\ "activity").length === 3)
+        assert(changedXml.toString().contains("SecondActivity"))
+     }
+	
+	it("should add several activities in place with one write") {
+		val file = TestFiles.copy("./testresources/AndroidManifest.xml")
+		val inPlace = new AndroidManifest(file.getPath)
+		inPlace.addActivitiesInPlace(ActivitySpec("FirstActivity", Nil, Nil) :: ActivitySpec("SecondActivity", Nil, Nil) :: Nil)
+		assert((inPlace.loadXML() \\ "activity").length === 3)
+     }
+
+	it("should not write the file if nothing was changed") {
+		val file = TestFiles.copy("./testresources/AndroidManifest.xml")
+		val unchanged = new AndroidManifest(file.getPath)
+		assert(!unchanged.save())
+		unchanged.loadXML()
+		assert(!unchanged.save())
+		unchanged.addActivity("MyActivity", Nil, Nil)
+		assert(unchanged.save())
+		assert(!unchanged.save())
+		assert(new AndroidManifest(file.getPath).containsActivity("MyActivity"))
+     }
+	
   }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.jayway.eclipse.adt.xml
+
+
+import org.scalatest.junit.JUnitRunner
+import org.junit.runner.RunWith
+import org.scalatest.Spec
+import org.scalatest.matchers.ShouldMatchers
+
+import scala.xml.XML
+
+/**
+ * Testclass for ManifestIndex.
+ *
+ */
+@RunWith(classOf[JUnitRunner])
+class ManifestIndexTest extends Spec with ShouldMatchers {
+
+  describe("A ManifestIndex") {
+    val index = ManifestIndex.build(XML.loadFile("./testresources/AndroidManifest.xml"))
+
+    it("should qualify class names relative to the package") {
+      index.qualify(".MyActivity") should equal ("hello.world.MyActivity")
+      index.qualify("MyActivity") should equal ("hello.world.MyActivity")
+      index.qualify("other.MyActivity") should equal ("other.MyActivity")
+    }
+
+    it("should find declared activities by relative and qualified name") {
+      assert(index.containsActivity(".HelloActivity"))
+      assert(index.containsActivity("hello.world.HelloActivity"))
+      assert(!index.containsActivity("MyActivity"))
+      assert(!index.containsService("HelloActivity"))
+    }
+
+    it("should index intent filter actions and categories") {
+      assert(index.componentsWithAction("android.intent.action.MAIN").contains("hello.world.HelloActivity"))
+      assert(index.componentsWithCategory("android.intent.category.LAUNCHER").contains("hello.world.HelloActivity"))
+      assert(index.componentsWithAction("android.intent.action.VIEW").isEmpty)
+    }
+
+    it("should return the activity nodes and the application node") {
+      assert(index.activityNodes.length === 1)
+      assert(index.applicationNode.label === "application")
+    }
+
+    it("should skip components without a name") {
+      val unnamed = ManifestIndex.build(
+        <manifest xmlns:android="http://schemas.android.com/apk/res/android" package="hello.world">
+          <application>
+            <activity><intent-filter><action android:name="android.intent.action.VIEW"/></intent-filter></activity>
+            <service/>
+            <activity android:name=".HelloActivity"/>
+          </application>
+        </manifest>)
+      assert(unnamed.containsActivity(".HelloActivity"))
+      assert(unnamed.componentsWithAction("android.intent.action.VIEW").isEmpty)
+      assert(unnamed.activityNodes.length === 2)
+    }
+
+    it("should be used by AndroidManifest for duplicate checks") {
+      val manifest = new AndroidManifest("./testresources/AndroidManifest.xml")
+      assert(manifest.containsActivity(".HelloActivity"))
+      assert(!manifest.containsActivity(".MyActivity"))
+    }
+  }
+}
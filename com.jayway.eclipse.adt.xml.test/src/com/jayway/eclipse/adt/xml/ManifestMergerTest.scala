@@ -0,0 +1,163 @@
+package com.jayway.eclipse.adt.xml
+
+
+import org.scalatest.junit.JUnitRunner
+import org.junit.runner.RunWith
+import org.scalatest.Spec
+import org.scalatest.matchers.ShouldMatchers
+
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+
+/**
+ * Testclass for ManifestMerger.
+ *
+ */
+@RunWith(classOf[JUnitRunner])
+class ManifestMergerTest extends Spec with ShouldMatchers {
+
+  private val app = "<manifest package=\"app\" xmlns:android=\"http://schemas.android.com/apk/res/android\">\n" +
+      "    <uses-permission android:name=\"android.permission.INTERNET\"/>\n" +
+      "    <application>\n" +
+      "        <activity android:name=\".Main\">\n" +
+      "            <intent-filter>\n" +
+      "                <action android:name=\"android.intent.action.MAIN\"/>\n" +
+      "            </intent-filter>\n" +
+      "        </activity>\n" +
+      "        <service android:name=\"lib.one.Sync\"/>\n" +
+      "    </application>\n" +
+      "</manifest>\n"
+
+  private val one = "<manifest package=\"lib.one\" xmlns:android=\"http://schemas.android.com/apk/res/android\">\n" +
+      "  <uses-permission android:name=\"android.permission.INTERNET\"/>\n" +
+      "  <uses-permission android:name=\"android.permission.CAMERA\"/>\n" +
+      "  <application>\n" +
+      "    <activity android:name=\".Viewer\"/>\n" +
+      "    <service android:name=\".Sync\">\n" +
+      "      <intent-filter><action android:name=\"lib.one.SYNC\"/></intent-filter>\n" +
+      "    </service>\n" +
+      "  </application>\n" +
+      "</manifest>\n"
+
+  private val two = "<manifest package=\"lib.two\" xmlns:android=\"http://schemas.android.com/apk/res/android\">\n" +
+      "  <uses-permission android:name=\"android.permission.CAMERA\"/>\n" +
+      "  <application>\n" +
+      "    <activity android:name=\"lib.one.Viewer\"/>\n" +
+      "    <activity android:name=\"app.Main\">\n" +
+      "      <intent-filter><action android:name=\"android.intent.action.MAIN\"/></intent-filter>\n" +
+      "      <intent-filter><action android:name=\"android.intent.action.VIEW\"/></intent-filter>\n" +
+      "    </activity>\n" +
+      "    <receiver android:name=\"Boot\"/>\n" +
+      "  </application>\n" +
+      "</manifest>\n"
+
+  private def merge(app : String, libraries : String*) : String = {
+    val out = new ByteArrayOutputStream
+    new ManifestMerger(TestFiles.create(app), libraries.map(TestFiles.create(_))).mergeTo(out)
+    new String(out.toByteArray, "UTF-8")
+  }
+
+  private def count(text : String, part : String) : Int = text.split(part, -1).length - 1
+
+  describe("A ManifestMerger") {
+
+    it("should keep the app manifest if there are no libraries") {
+      merge(app) should equal (app)
+    }
+
+    it("should add the components of the libraries with qualified names") {
+      val merged = ManifestTape.fromString(merge(app, one, two))
+      assert(merged.containsActivity(".Main"))
+      assert(merged.containsActivity("lib.one.Viewer"))
+      assert(merged.containsReceiver("lib.two.Boot"))
+      assert(merged.containsService("lib.one.Sync"))
+      merged.packageName should equal ("app")
+    }
+
+    it("should not add elements twice") {
+      val merged = merge(app, one, two)
+      count(merged, "android.permission.INTERNET") should equal (1)
+      count(merged, "android.permission.CAMERA") should equal (1)
+      count(merged, "Viewer") should equal (1)
+      count(merged, "Sync\"") should equal (1)
+    }
+
+    it("should add intent filters of duplicate components") {
+      val merged = merge(app, one, two)
+      count(merged, "android.intent.action.MAIN") should equal (1)
+      count(merged, "android.intent.action.VIEW") should equal (1)
+      count(merged, "lib.one.SYNC") should equal (1)
+      val tape = ManifestTape.fromString(merged)
+      tape.componentsWithAction("android.intent.action.VIEW") should equal (Set("app.Main"))
+      tape.componentsWithAction("lib.one.SYNC") should equal (Set("lib.one.Sync"))
+    }
+
+    it("should qualify the target and parent activities of library components") {
+      val library = "<manifest package=\"lib.three\"><application>" +
+          "<activity android:name=\".Detail\" android:parentActivityName=\".Viewer\"/>" +
+          "<activity-alias android:name=\".Alias\" android:targetActivity=\"Viewer\"/>" +
+          "</application></manifest>"
+      val merged = merge(app, library)
+      assert(merged.contains("<activity android:name=\"lib.three.Detail\" android:parentActivityName=\"lib.three.Viewer\"/>"))
+      assert(merged.contains("<activity-alias android:name=\"lib.three.Alias\" android:targetActivity=\"lib.three.Viewer\"/>"))
+    }
+
+    it("should detect duplicate intent filters with any namespace prefix") {
+      val library = "<manifest package=\"lib.four\" xmlns:a=\"http://schemas.android.com/apk/res/android\"><application>" +
+          "<activity a:name=\"app.Main\"><intent-filter><action a:name=\"android.intent.action.VIEW\"/>" +
+          "<data a:scheme=\"http\" a:host=\"example.com\"/></intent-filter></activity></application></manifest>"
+      val other = library.replace("lib.four", "lib.five").replace("xmlns:a", "xmlns:android").replace("a:", "android:")
+      val merged = merge(app, library, other)
+      count(merged, "example.com") should equal (1)
+    }
+
+    it("should keep the formatting of the app manifest") {
+      val merged = merge(app, one)
+      assert(merged.startsWith("<manifest package=\"app\""))
+      assert(merged.contains("    <uses-permission android:name=\"android.permission.CAMERA\"/>\n    <application>"))
+      assert(merged.contains("        <activity android:name=\"lib.one.Viewer\"/>\n    </application>"))
+    }
+
+    it("should merge many libraries") {
+      val libraries = (0 until 20).map(i => "<manifest package=\"lib" + (i % 5) + "\"><application>" +
+          "<activity android:name=\".Shared\"/></application></manifest>").toList
+      val merged = ManifestTape.fromString(merge(app, libraries : _*))
+      merged.activityElements.length should equal (6)
+    }
+
+    it("should write the merged manifest to one of its inputs") {
+      val file = TestFiles.create(app)
+      new ManifestMerger(file, List(TestFiles.create(one))).mergeTo(file)
+      assert(ManifestTape.load(file).containsActivity("lib.one.Viewer"))
+    }
+
+    it("should leave the output file unchanged if the merge fails") {
+      val dir = new File(System.getProperty("java.io.tmpdir"), "ManifestMergerTest" + System.nanoTime)
+      dir.mkdir()
+      val file = new File(dir, "AndroidManifest.xml")
+      val original = "<manifest package=\"app\"/>"
+      try {
+        TestFiles.write(file, original)
+        evaluating {
+          new ManifestMerger(file, List(TestFiles.create(one))).mergeTo(file)
+        } should produce [IOException]
+        TestFiles.read(file) should equal (original)
+        dir.list.length should equal (1)
+      } finally {
+        file.delete()
+        dir.delete()
+      }
+    }
+
+    it("should throw IOException if the app has no application element") {
+      evaluating { merge("<manifest package=\"app\"/>", one) } should produce [IOException]
+    }
+
+    it("should throw IOException for unreadable libraries") {
+      evaluating {
+        new ManifestMerger(TestFiles.create(app), List(new File("missing/AndroidManifest.xml"))).mergeTo(new ByteArrayOutputStream)
+      } should produce [IOException]
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.jayway.eclipse.adt.xml
+
+
+import org.scalatest.junit.JUnitRunner
+import org.junit.runner.RunWith
+import org.scalatest.Spec
+import org.scalatest.matchers.ShouldMatchers
+
+import java.io.File
+
+/**
+ * Testclass for ManifestSnapshot and the optimistic commits of ManifestStore.
+ *
+ */
+@RunWith(classOf[JUnitRunner])
+class ManifestSnapshotTest extends Spec with ShouldMatchers {
+
+  private def add(name : String) = new AddActivitiesEdit(List(ActivitySpec(name, Nil, Nil)))
+
+  describe("A ManifestSnapshot") {
+
+    it("should not be changed by edits") {
+      val store = new FileManifestStore(TestFiles.copy("./testresources/AndroidManifest.xml"))
+      val snapshot = store.read()
+      val edited = snapshot.edit(add(".MyActivity"))
+      assert(edited.containsActivity(".MyActivity"))
+      assert(!snapshot.containsActivity(".MyActivity"))
+      assert(edited.base eq snapshot.base)
+      edited.edits.length should equal (1)
+      assert(!snapshot.isEdited)
+    }
+
+    it("should commit its edits") {
+      val file = TestFiles.copy("./testresources/AndroidManifest.xml")
+      val store = new FileManifestStore(file)
+      val committed = store.commit(store.read().edit(add(".MyActivity")).edit(add(".OtherActivity")))
+      assert(committed.containsActivity(".MyActivity"))
+      val reread = store.read()
+      assert(reread.containsActivity(".MyActivity"))
+      assert(reread.containsActivity(".OtherActivity"))
+      reread.stamp should equal (committed.stamp)
+    }
+
+    it("should apply its edits again after a concurrent commit") {
+      val file = TestFiles.copy("./testresources/AndroidManifest.xml")
+      val store = new FileManifestStore(file)
+      val first = store.read().edit(add(".FirstActivity"))
+      val second = store.read().edit(add(".SecondActivity")).edit(add(".FirstActivity"))
+      store.commit(first)
+      store.commit(second)
+      val after = TestFiles.read(file)
+      assert(after.contains("SecondActivity"))
+      after.indexOf("FirstActivity") should equal (after.lastIndexOf("FirstActivity"))
+    }
+
+    it("should not write if the edits change nothing") {
+      val file = TestFiles.copy("./testresources/AndroidManifest.xml")
+      val store = new FileManifestStore(file)
+      val snapshot = store.read()
+      file.setLastModified(0)
+      store.commit(snapshot.edit(add(".HelloActivity")))
+      file.lastModified should equal (0)
+    }
+
+    it("should give up if the manifest keeps changing") {
+      val file = TestFiles.copy("./testresources/AndroidManifest.xml")
+      val store = new FileManifestStore(file) {
+        override def compareAndSet(expectedStamp : Long, tape : ManifestTape) : Long = -1
+      }
+      evaluating { store.commit(store.read().edit(add(".MyActivity"))) } should produce [ManifestConflictException]
+    }
+
+    it("should conflict if the application element was removed") {
+      val file = TestFiles.create("<manifest package=\"a.b\"></manifest>")
+      val store = new FileManifestStore(file)
+      evaluating { store.commit(store.read().edit(add(".MyActivity"))) } should produce [ManifestConflictException]
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.jayway.eclipse.adt.xml
+
+
+import org.scalatest.junit.JUnitRunner
+import org.junit.runner.RunWith
+import org.scalatest.Spec
+import org.scalatest.matchers.ShouldMatchers
+
+import java.io.IOException
+
+/**
+ * Testclass for ManifestSplicer.
+ *
+ */
+@RunWith(classOf[JUnitRunner])
+class ManifestSplicerTest extends Spec with ShouldMatchers {
+
+  describe("A ManifestSplicer") {
+    val manifest = new AndroidManifest("./testresources/AndroidManifest.xml")
+
+    it("should find the closing application tag") {
+      val xml = "<manifest><application></application></manifest>"
+      ManifestSplicer.findApplicationEnd(xml.getBytes("UTF-8"), xml.length) should equal (23)
+    }
+
+    it("should ignore closing application tags in comments and CDATA") {
+      val xml = "<manifest><application></application><!-- </application> --><![CDATA[</application>]]></manifest>"
+      ManifestSplicer.findApplicationEnd(xml.getBytes("UTF-8"), xml.length) should equal (23)
+    }
+
+    it("should return -1 if there is no closing application tag") {
+      val xml = "<manifest><application/></manifest>"
+      ManifestSplicer.findApplicationEnd(xml.getBytes("UTF-8"), xml.length) should equal (-1)
+    }
+
+    it("should insert the activity and keep comments and formatting") {
+      val file = TestFiles.copy("./testresources/AndroidManifest.xml")
+      val before = TestFiles.read(file)
+      ManifestSplicer.insert(file, List(manifest.createXML("MyActivity", Nil, Nil)))
+      val after = TestFiles.read(file)
+      assert(after.contains("MyActivity"))
+      assert(after.startsWith(before.substring(0, before.indexOf("  </application>"))))
+      assert(after.endsWith(before.substring(before.indexOf("  </application>"))))
+      assert(after.indexOf("MyActivity") < after.indexOf("</application>"))
+    }
+
+    it("should add an activity in place") {
+      val file = TestFiles.copy("./testresources/AndroidManifest.xml")
+      val inPlace = new AndroidManifest(file.getPath)
+      inPlace.addActivityInPlace("MyActivity", "android.intent.action.VIEW" :: Nil, Nil)
+      inPlace.loadXML()
+      assert(inPlace.getActivityNodes().length === 2)
+    }
+
+    it("should throw IOException if there is no application element") {
+      val file = TestFiles.create("<manifest></manifest>")
+      evaluating { ManifestSplicer.insert(file, List(manifest.createXML("MyActivity", Nil, Nil))) } should produce [IOException]
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.jayway.eclipse.adt.xml
+
+
+import org.scalatest.junit.JUnitRunner
+import org.junit.runner.RunWith
+import org.scalatest.Spec
+import org.scalatest.matchers.ShouldMatchers
+
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+
+/**
+ * Testclass for ManifestTape.
+ *
+ */
+@RunWith(classOf[JUnitRunner])
+class ManifestTapeTest extends Spec with ShouldMatchers {
+
+  describe("A ManifestTape") {
+    val tape = ManifestTape.load(new File("./testresources/AndroidManifest.xml"))
+
+    it("should read the package and the elements") {
+      tape.packageName should equal ("hello.world")
+      tape.label(0) should equal ("manifest")
+      tape.label(tape.applicationElement) should equal ("application")
+      tape.parent(tape.applicationElement) should equal (0)
+      tape.elementCount should equal (7)
+      tape.line(0) should equal (1)
+      tape.line(tape.applicationElement) should equal (2)
+    }
+
+    it("should number the lines of all elements") {
+      val lines = ManifestTape.fromString("<manifest package=\"a\">\r\n\n<application>" +
+          "<activity android:name=\".A\"/>\n  <activity android:name=\".B\"/></application>\n</manifest>\n")
+      (0 until lines.elementCount).map(lines.line(_)).toList should equal (List(1, 3, 3, 4))
+    }
+
+    it("should find declared activities by relative and qualified name") {
+      assert(tape.containsActivity(".HelloActivity"))
+      assert(tape.containsActivity("HelloActivity"))
+      assert(tape.containsActivity("hello.world.HelloActivity"))
+      assert(!tape.containsActivity("MyActivity"))
+      assert(!tape.containsService("HelloActivity"))
+    }
+
+    it("should answer the same queries as ManifestIndex") {
+      val index = new AndroidManifest("./testresources/AndroidManifest.xml").getIndex()
+      tape.componentsWithAction("android.intent.action.MAIN") should equal (index.componentsWithAction("android.intent.action.MAIN"))
+      tape.componentsWithCategory("android.intent.category.LAUNCHER") should equal (index.componentsWithCategory("android.intent.category.LAUNCHER"))
+      assert(tape.componentsWithAction("android.intent.action.VIEW").isEmpty)
+      tape.activityElements.length should equal (index.activityNodes.length)
+    }
+
+    it("should return decoded attribute values") {
+      val xml = "<manifest package=\"a.b\"><application android:label=\"Tom &amp; Jerry\"></application></manifest>"
+      val small = ManifestTape.fromString(xml)
+      small.attribute(small.applicationElement, "android:label") should equal ("Tom & Jerry")
+      small.attribute(small.applicationElement, "android:icon") should equal (null)
+    }
+
+    it("should skip comments, CDATA sections and processing instructions") {
+      val xml = "<?xml version=\"1.0\"?><!-- <activity android:name=\".A\"/> --><manifest package=\"a.b\">" +
+          "<application><![CDATA[<activity android:name=\".B\"/>]]><activity android:name=\".C\"/></application></manifest>"
+      val small = ManifestTape.fromString(xml)
+      assert(!small.containsActivity(".A"))
+      assert(!small.containsActivity(".B"))
+      assert(small.containsActivity("a.b.C"))
+    }
+
+    it("should insert activities without changing the tape") {
+      val inserted = tape.insert(List(new AndroidManifest("").createXML(".MyActivity", Nil, Nil)))
+      assert(inserted.containsActivity(".MyActivity"))
+      assert(inserted.containsActivity(".HelloActivity"))
+      assert(!tape.containsActivity(".MyActivity"))
+      assert(inserted.toString.indexOf("MyActivity") < inserted.toString.indexOf("</application>"))
+      val out = new ByteArrayOutputStream
+      inserted.write(out)
+      new String(out.toByteArray, "UTF-8") should equal (inserted.toString)
+    }
+
+    it("should throw IOException if there is no closing application tag") {
+      val small = ManifestTape.fromString("<manifest><application/></manifest>")
+      evaluating { small.insert(Nil) } should produce [IOException]
+    }
+
+    it("should throw IOException for unclosed elements") {
+      evaluating { ManifestTape.fromString("<manifest><application>") } should produce [IOException]
+    }
+
+    it("should be created by AndroidManifest") {
+      assert(new AndroidManifest("./testresources/AndroidManifest.xml").loadTape().containsActivity(".HelloActivity"))
+    }
+  }
+}
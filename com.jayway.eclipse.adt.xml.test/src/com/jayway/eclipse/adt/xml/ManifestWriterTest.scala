@@ -0,0 +1,54 @@
+package com.jayway.eclipse.adt.xml
+
+
+import org.scalatest.junit.JUnitRunner
+import org.junit.runner.RunWith
+import org.scalatest.Spec
+import org.scalatest.matchers.ShouldMatchers
+
+import java.io.File
+
+/**
+ * Testclass for ManifestWriter.
+ *
+ */
+@RunWith(classOf[JUnitRunner])
+class ManifestWriterTest extends Spec with ShouldMatchers {
+
+  private def write(file : File, content : String) : Boolean = {
+    val bytes = content.getBytes("UTF-8")
+    ManifestWriter.write(file, bytes, bytes.length)
+  }
+
+  describe("ManifestWriter") {
+
+    it("should not write unchanged content") {
+      val file = TestFiles.create("<manifest package=\"a.b\"/>")
+      file.setLastModified(0)
+      assert(!write(file, "<manifest package=\"a.b\"/>"))
+      file.lastModified should equal (0)
+    }
+
+    it("should replace changed content") {
+      val file = TestFiles.create("<manifest package=\"a.b\"/>")
+      assert(write(file, "<manifest package=\"a.c\"/>"))
+      TestFiles.read(file) should equal ("<manifest package=\"a.c\"/>")
+      assert(write(file, "<manifest/>"))
+      TestFiles.read(file) should equal ("<manifest/>")
+    }
+
+    it("should create missing files and leave no temporary files") {
+      val dir = new File(System.getProperty("java.io.tmpdir"), "ManifestWriterTest" + System.nanoTime)
+      dir.mkdir()
+      val file = new File(dir, "AndroidManifest.xml")
+      try {
+        assert(write(file, "<manifest/>"))
+        TestFiles.read(file) should equal ("<manifest/>")
+        dir.list.length should equal (1)
+      } finally {
+        file.delete()
+        dir.delete()
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+
+/**
+ * Helpers for tests that write manifest files.
+ *
+ */
+object TestFiles {
+
+  /**
+   * copy the given test resource to a temporary file
+   * @param resource path of the test resource
+   * @return temporary copy, deleted on exit
+   */
+  def copy(resource : String) : File = {
+    val file = File.createTempFile("AndroidManifest", ".xml")
+    file.deleteOnExit()
+    write(file, read(new File(resource)))
+    file
+  }
+
+  /**
+   * write the given content as UTF-8 to a temporary file
+   * @param content file content
+   * @return temporary file, deleted on exit
+   */
+  def create(content : String) : File = {
+    val file = File.createTempFile("AndroidManifest", ".xml")
+    file.deleteOnExit()
+    write(file, content)
+    file
+  }
+
+  def read(file : File) : String = {
+    val in = new FileInputStream(file)
+    try {
+      val bytes = new Array[Byte](file.length.toInt)
+      var offset = 0
+      while (offset < bytes.length) {
+        offset += in.read(bytes, offset, bytes.length - offset)
+      }
+      new String(bytes, "UTF-8")
+    } finally {
+      in.close()
+    }
+  }
+
+  def write(file : File, content : String) {
+    val out = new FileOutputStream(file)
+    try {
+      out.write(content.getBytes("UTF-8"))
+    } finally {
+      out.close()
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.xml.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jayway.eclipse.adt.xml.ManifestMerger;
+
+/**
+ * Benchmarks for merging library manifests into an app manifest. The
+ * libraries have their own packages, so all their components are added,
+ * or the package of the app, so all of them are duplicates. The merged
+ * manifest is only counted, not stored. Run with {@code gradle jmh}.
+ * @author Michael Kober
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManifestMergeBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int components;
+
+	@Param({ "1", "10", "50" })
+	public int libraries;
+
+	private ManifestMerger distinct;
+	private ManifestMerger duplicates;
+
+	@Setup
+	public void setUp() throws IOException {
+		File app = SyntheticManifest.createFile(components);
+		File[] distinctLibraries = new File[libraries];
+		File[] duplicateLibraries = new File[libraries];
+		for (int i = 0; i < libraries; i++) {
+			distinctLibraries[i] = SyntheticManifest.createFile(components, "bench.lib" + i);
+			duplicateLibraries[i] = SyntheticManifest.createFile(components);
+		}
+		distinct = new ManifestMerger(app, distinctLibraries);
+		duplicates = new ManifestMerger(app, duplicateLibraries);
+	}
+
+	@Benchmark
+	public long mergeDistinct() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		distinct.mergeTo(out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long mergeDuplicates() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		duplicates.mergeTo(out);
+		return out.count;
+	}
+
+	/**
+	 * Stream that only counts the written bytes.
+	 */
+	private static final class CountingOutputStream extends OutputStream {
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
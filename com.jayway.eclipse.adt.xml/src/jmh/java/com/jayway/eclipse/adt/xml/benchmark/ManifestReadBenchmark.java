@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.xml.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scala.xml.Node;
+
+import com.jayway.eclipse.adt.xml.AndroidManifest;
+import com.jayway.eclipse.adt.xml.ManifestTape;
+
+/**
+ * Benchmarks for loading and querying manifests of different sizes, as
+ * scala.xml tree and as {@link ManifestTape}.
+ * Run with {@code gradle jmh}.
+ * @author Michael Kober
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManifestReadBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "50000" })
+	public int components;
+
+	private File file;
+	private AndroidManifest loaded;
+	private ManifestTape tape;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		file = SyntheticManifest.createFile(components);
+		loaded = new AndroidManifest(file.getPath());
+		loaded.loadXML();
+		tape = loaded.loadTape();
+	}
+
+	@Benchmark
+	public Node load() {
+		return new AndroidManifest(file.getPath()).loadXML();
+	}
+
+	@Benchmark
+	public boolean queryContainsActivity() {
+		return loaded.containsActivity(".Component" + (components / 2));
+	}
+
+	@Benchmark
+	public int queryActivityNodes() {
+		return loaded.getActivityNodes().length();
+	}
+
+	@Benchmark
+	public ManifestTape loadTape() throws IOException {
+		return new AndroidManifest(file.getPath()).loadTape();
+	}
+
+	@Benchmark
+	public boolean queryTapeContainsActivity() {
+		return tape.containsActivity(".Component" + (components / 2));
+	}
+
+	@Benchmark
+	public int queryTapeActivityElements() {
+		return tape.activityElements().length;
+	}
+}
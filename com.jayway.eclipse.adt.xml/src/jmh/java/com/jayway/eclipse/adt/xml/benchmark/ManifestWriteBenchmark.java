@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.xml.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scala.xml.Node;
+
+import com.jayway.eclipse.adt.xml.ActivitySpec;
+import com.jayway.eclipse.adt.xml.AndroidManifest;
+
+/**
+ * Benchmarks for inserting activities and saving manifests of different
+ * sizes. Every invocation works on a fresh copy of the generated manifest.
+ * Run with {@code gradle jmh}.
+ * @author Michael Kober
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManifestWriteBenchmark {
+
+	private static final int BATCH_SIZE = 20;
+	private static final String[] ACTIONS = { "android.intent.action.VIEW" };
+	private static final String[] CATEGORIES = { "android.intent.category.DEFAULT" };
+
+	@Param({ "10", "100", "1000", "10000", "50000" })
+	public int components;
+
+	private File original;
+	private File scratch;
+	private AndroidManifest manifest;
+	private ActivitySpec[] batch;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		original = SyntheticManifest.createFile(components);
+		scratch = File.createTempFile("AndroidManifest-scratch", ".xml");
+		scratch.deleteOnExit();
+		batch = new ActivitySpec[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			batch[i] = new ActivitySpec(".BatchActivity" + i, ACTIONS, CATEGORIES);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() throws IOException {
+		SyntheticManifest.copy(original, scratch);
+		manifest = new AndroidManifest(scratch.getPath());
+	}
+
+	@Benchmark
+	public Node insert() {
+		return manifest.addActivity(".NewActivity", ACTIONS, CATEGORIES);
+	}
+
+	@Benchmark
+	public void insertInPlace() throws IOException {
+		manifest.addActivityInPlace(".NewActivity", ACTIONS, CATEGORIES);
+	}
+
+	@Benchmark
+	public Node batchInsert() {
+		return manifest.addActivities(batch);
+	}
+
+	@Benchmark
+	public void batchInsertInPlace() throws IOException {
+		manifest.addActivitiesInPlace(batch);
+	}
+
+	@Benchmark
+	public boolean save() throws IOException {
+		manifest.addActivity(".NewActivity", ACTIONS, CATEGORIES);
+		return manifest.save();
+	}
+
+	@Benchmark
+	public boolean saveUnchanged() throws IOException {
+		manifest.loadXML();
+		return manifest.save();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jayway.eclipse.adt.xml.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Generates synthetic manifests with a given number of components.
+ * @author Michael Kober
+ *
+ */
+public final class SyntheticManifest {
+
+	private static final String[] KINDS = { "activity", "service", "receiver", "provider" };
+
+	private SyntheticManifest() {
+	}
+
+	/**
+	 * Generate a manifest. Components cycle through activities, services,
+	 * receivers and providers, each with an intent filter.
+	 * @param components number of components
+	 * @return manifest xml
+	 */
+	public static String generate(int components) {
+		return generate(components, "bench.app");
+	}
+
+	/**
+	 * Generate a manifest with the given package, e.g. of a library project.
+	 * @param components number of components
+	 * @param packageName package of the manifest
+	 * @return manifest xml
+	 */
+	public static String generate(int components, String packageName) {
+		StringBuilder buf = new StringBuilder(components * 256);
+		buf.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+		buf.append("<manifest xmlns:android=\"http://schemas.android.com/apk/res/android\"");
+		buf.append(" package=\"").append(packageName).append("\" android:versionCode=\"1\" android:versionName=\"1.0\">\n");
+		buf.append("    <application android:icon=\"@drawable/icon\" android:label=\"@string/app_name\">\n");
+		for (int i = 0; i < components; i++) {
+			String kind = KINDS[i % KINDS.length];
+			buf.append("        <!-- component ").append(i).append(" -->\n");
+			buf.append("        <").append(kind).append(" android:name=\".Component").append(i).append("\"");
+			buf.append(" android:label=\"@string/component_").append(i).append("\">\n");
+			buf.append("            <intent-filter>\n");
+			buf.append("                <action android:name=\"bench.app.action.ACTION_").append(i % 100).append("\" />\n");
+			buf.append("                <category android:name=\"android.intent.category.DEFAULT\" />\n");
+			buf.append("            </intent-filter>\n");
+			buf.append("        </").append(kind).append(">\n");
+		}
+		buf.append("    </application>\n");
+		buf.append("    <uses-sdk android:minSdkVersion=\"3\" />\n");
+		buf.append("</manifest>\n");
+		return buf.toString();
+	}
+
+	/**
+	 * Write a generated manifest to a temporary file.
+	 * @param components number of components
+	 * @return temporary file, deleted on exit
+	 * @throws IOException if the file can not be written
+	 */
+	public static File createFile(int components) throws IOException {
+		return createFile(components, "bench.app");
+	}
+
+	/**
+	 * Write a generated manifest with the given package to a temporary file.
+	 * @param components number of components
+	 * @param packageName package of the manifest
+	 * @return temporary file, deleted on exit
+	 * @throws IOException if the file can not be written
+	 */
+	public static File createFile(int components, String packageName) throws IOException {
+		File file = File.createTempFile("AndroidManifest-" + components + "-", ".xml");
+		file.deleteOnExit();
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(generate(components, packageName).getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Copy a file, used to reset manifests changed by a benchmark.
+	 * @param from source
+	 * @param to target, overwritten
+	 * @throws IOException if the copy fails
+	 */
+	public static void copy(File from, File to) throws IOException {
+		InputStream in = new FileInputStream(from);
+		try {
+			OutputStream out = new FileOutputStream(to);
+			try {
+				byte[] buffer = new byte[65536];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.jayway.eclipse.adt.xml
+
+ /**
+  * ActivitySpec.
+  * Describes an activity to add to the manifest.
+  * @param name name of the activity, e.g. ".MyActivity"
+  * @param intentActions intent actions, may be empty
+  * @param intentCategories intent categories, may be empty
+  */
+case class ActivitySpec(name : String, intentActions : List[String], intentCategories : List[String]) {
+
+  /**
+   * convenience constructor for java callers
+   */
+  def this(name : String, intentActions : Array[String], intentCategories : Array[String]) =
+    this(name, List.fromArray(intentActions), List.fromArray(intentCategories))
+}
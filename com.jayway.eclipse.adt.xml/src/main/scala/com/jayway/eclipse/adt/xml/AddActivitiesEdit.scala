@@ -0,0 +1,32 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.IOException
+
+ /**
+  * AddActivitiesEdit.
+  * Adds activities as last children of the application element. Activities
+  * the version already declares, e.g. added by a concurrent commit, are
+  * skipped, so the edit never conflicts with other additions.
+  * @param activities activities to add
+  */
+class AddActivitiesEdit(activities : Seq[ActivitySpec]) extends ManifestEdit {
+
+  /**
+   * convenience constructor for java callers
+   */
+  def this(activities : Array[ActivitySpec]) = this(activities.toList)
+
+  @throws(classOf[IOException])
+  def applyTo(tape : ManifestTape) : ManifestTape = {
+    val missing = activities.filter(spec => !tape.containsActivity(spec.name))
+    if (missing.isEmpty) {
+      tape
+    } else if (tape.applicationElement < 0) {
+      throw new ManifestConflictException("No application element to add " + missing.map(_.name).mkString(", "))
+    } else {
+      tape.insert(missing.map(spec => AndroidManifest.createXML(spec.name, spec.intentActions, spec.intentCategories)))
+    }
+  }
+
+  override def toString : String = "add activities " + activities.map(_.name).mkString(", ")
+}
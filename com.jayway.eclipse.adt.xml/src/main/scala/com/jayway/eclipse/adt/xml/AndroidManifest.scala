@@ -1,5 +1,11 @@
 package com.jayway.eclipse.adt.xml
 
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.OutputStreamWriter
+
+import scala.xml.Elem
 import scala.xml.Node
 import scala.xml.NodeSeq
 import scala.xml.Utility
@@ -12,6 +18,8 @@ import scala.xml.XML
 class AndroidManifest(fileName : String) {
 	
 	var current : Node = null;
+	private var index : ManifestIndex = null;
+	private var saved : Node = null;
 
   /**
    * crate the XML for the new activity
@@ -20,14 +28,7 @@ class AndroidManifest(fileName : String) {
    * @param intentCategories List of intent categories, may be empty
    */
   def createXML(activityName: String, intentActions: List[String], intentCategories: List[String]) : Node = {
-	val xml =
-      <activity android:name={activityName}>
-        <intent-filter>
-	      {for(action <- intentActions) yield {<action android:name={action} />}}
-	      {for(category <- intentCategories) yield {<category android:name={category} />}}
-        </intent-filter>
-      </activity>
-	xml
+    AndroidManifest.createXML(activityName, intentActions, intentCategories)
   }
   
   /**
@@ -46,15 +47,52 @@ class AndroidManifest(fileName : String) {
    */
   def loadXML() : Node = {
     current = XML.loadFile(fileName)
+    saved = current
+    index = ManifestIndex.build(current)
     current
   }
   
+  /**
+   * load the manifest as compact, read-only ManifestTape instead of a DOM,
+   * for very large manifests. The tape is not kept by this object.
+   * @return tape of the file
+   */
+  @throws(classOf[IOException])
+  def loadTape() : ManifestTape = {
+    ManifestTape.load(new File(fileName))
+  }
+
+  /**
+   * get the index of the components of the manifest, the manifest is
+   * loaded if necessary
+   * @return component index
+   */
+  def getIndex() : ManifestIndex = {
+    if (index == null) {
+      if (current == null) {
+        loadXML()
+      } else {
+        index = ManifestIndex.build(current)
+      }
+    }
+    index
+  }
+  
+  /**
+   * check if the manifest already declares the given activity
+   * @param activityName name of the activity, fully qualified or relative to the package
+   * @return true if the activity is declared
+   */
+  def containsActivity(activityName : String) : Boolean = {
+    getIndex().containsActivity(activityName)
+  }
+  
   /**
    * get all activity nodes from the manifest
    * @return activity nodes
    */ 
   def getActivityNodes() : NodeSeq = {
-    current \\ "activity"
+    NodeSeq.fromSeq(getIndex().activityNodes)
   }
    
   /**
@@ -62,7 +100,8 @@ class AndroidManifest(fileName : String) {
    * @return application node
    */
   def getAppNode() : NodeSeq = {
-    current \\ "application"
+    val app = getIndex().applicationNode
+    if (app == null) NodeSeq.Empty else app
   }
   
   /**
@@ -73,9 +112,10 @@ class AndroidManifest(fileName : String) {
   def insertActivity(activity : Node) : Node = {
     val xml = loadXML()
     val sb = new StringBuilder(xml.toString) 
-    val index = sb.toString.lastIndexOf("</application>")
-    sb.insert(index, activity.toString)
+    val offset = sb.toString.lastIndexOf("</application>")
+    sb.insert(offset, activity.toString)
     current = XML.loadString(sb.toString)
+    index = null
     current
   }
   
@@ -101,12 +141,147 @@ class AndroidManifest(fileName : String) {
   }
   
  /**
-  * Saves the changes back to manifest file.
+  * Add several activities to the manifest with one load of the file, the
+  * changes are written with one call to save.
+  * @param activities activities to add
+  * @return new node with inserted activities
+  */
+  def addActivities(activities : Seq[ActivitySpec]) : Node = {
+    val nodes = activities.map(spec => createXML(spec.name, spec.intentActions, spec.intentCategories))
+    current = appendToApplication(loadXML(), nodes)
+    index = null
+    current
+  }
+
+ /**
+  * Add several activities to the manifest. convenience method.
+  * @param activities activities to add
+  * @return new node with inserted activities
+  */
+  def addActivities(activities : Array[ActivitySpec]) : Node = {
+    addActivities(activities.toList)
+  }
+
+  /**
+   * append the given nodes as last children of the application element
+   * @param root manifest
+   * @param nodes nodes to append
+   * @return new manifest, sharing all other nodes with root
+   */
+  private def appendToApplication(root : Node, nodes : Seq[Node]) : Node = root match {
+    case manifest : Elem =>
+      val children = manifest.child.map(child => child match {
+        case app : Elem if app.label == "application" =>
+          Elem(app.prefix, app.label, app.attributes, app.scope, (app.child ++ nodes) : _*)
+        case other => other
+      })
+      Elem(manifest.prefix, manifest.label, manifest.attributes, manifest.scope, children : _*)
+    case other => other
+  }
+
+ /**
+  * insert the given activity directly into the manifest file, in front of the
+  * closing application tag. No DOM is built and the formatting and comments
+  * of the file are kept, the file is written immediately.
+  * @param activity new activity
+  */
+  @throws(classOf[IOException])
+  def insertActivityInPlace(activity : Node) {
+    insertInPlace(List(activity))
+  }
+
+ /**
+  * Add an activity directly to the manifest file, see insertActivityInPlace.
+  * @param activityName name of the activity
+  * @param intentActions intent actions
+  * @param intentCategories intent categories
+  */
+  @throws(classOf[IOException])
+  def addActivityInPlace(activityName: String, intentActions: List[String], intentCategories: List[String]) {
+    insertActivityInPlace(createXML(activityName, intentActions, intentCategories))
+  }
+
+ /**
+  * Add an activity directly to the manifest file, see insertActivityInPlace.
+  * @param activityName name of the activity
+  * @param intentActions intent actions
+  * @param intentCategories intent categories
+  */
+  @throws(classOf[IOException])
+  def addActivityInPlace(activityName: String, intentActions: Array[String], intentCategories: Array[String]) {
+    addActivityInPlace(activityName, List.fromArray(intentActions), List.fromArray(intentCategories))
+  }
+
+ /**
+  * Add several activities directly to the manifest file with one write,
+  * see insertActivityInPlace.
+  * @param activities activities to add
+  */
+  @throws(classOf[IOException])
+  def addActivitiesInPlace(activities : Seq[ActivitySpec]) {
+    insertInPlace(activities.map(spec => createXML(spec.name, spec.intentActions, spec.intentCategories)))
+  }
+
+ /**
+  * Add several activities directly to the manifest file. convenience method.
+  * @param activities activities to add
+  */
+  @throws(classOf[IOException])
+  def addActivitiesInPlace(activities : Array[ActivitySpec]) {
+    addActivitiesInPlace(activities.toList)
+  }
+
+  /**
+   * splice the given activities into the file. The loaded model and its
+   * index no longer match the file and are loaded again on the next read.
+   * @param activities new activities
+   */
+  private def insertInPlace(activities : Seq[Node]) {
+    ManifestSplicer.insert(new File(fileName), activities)
+    current = null
+    saved = null
+    index = null
+  }
+  
+ /**
+  * Saves the changes back to manifest file. Nothing is written if the
+  * manifest was not changed since it was loaded or saved, or if it is
+  * serialized to the current content of the file.
+  * @return true if the file was written
   */
-  def save() {
-	  XML.save(fileName, current, "utf-8")
+  @throws(classOf[IOException])
+  def save() : Boolean = {
+    if (current == null || (current eq saved)) {
+      return false
+    }
+    val out = new ByteArrayOutputStream
+    val writer = new OutputStreamWriter(out, "utf-8")
+    XML.write(writer, current, "utf-8", false, null)
+    writer.close()
+    saved = current
+    ManifestWriter.write(new File(fileName), out.toByteArray, out.size)
   }
   
   
   
 }
+
+object AndroidManifest {
+
+  /**
+   * crate the XML for a new activity, see the createXML method of the class
+   * @param activityName name of the new activity prefixed with "."
+   * @param intentActions List of intent actions, may be empty
+   * @param intentCategories List of intent categories, may be empty
+   */
+  def createXML(activityName: String, intentActions: List[String], intentCategories: List[String]) : Node = {
+	val xml =
+      <activity android:name={activityName}>
+        <intent-filter>
+	      {for(action <- intentActions) yield {<action android:name={action} />}}
+	      {for(category <- intentCategories) yield {<category android:name={category} />}}
+        </intent-filter>
+      </activity>
+	xml
+  }
+}
@@ -0,0 +1,52 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.File
+import java.io.IOException
+
+import scala.collection.mutable.HashMap
+
+ /**
+  * FileManifestStore.
+  * ManifestStore of a plain manifest file, for use outside of a workspace.
+  * The stamp is computed from the length and a checksum of the content, as
+  * the modification time of files is too coarse. Commits of stores of the
+  * same file are serialized within this VM, changed content replaces the
+  * file by rename, see ManifestWriter.
+  * @param file manifest file
+  */
+class FileManifestStore(file : File) extends ManifestStore {
+
+  private val lock = FileManifestStore.lockFor(file)
+
+  @throws(classOf[IOException])
+  def read() : ManifestSnapshot = {
+    val tape = ManifestTape.load(file)
+    new ManifestSnapshot(tape, FileManifestStore.stamp(tape))
+  }
+
+  @throws(classOf[IOException])
+  def compareAndSet(expectedStamp : Long, tape : ManifestTape) : Long = lock.synchronized {
+    if (FileManifestStore.stamp(ManifestTape.load(file)) != expectedStamp) {
+      -1
+    } else {
+      tape.writeTo(file)
+      FileManifestStore.stamp(tape)
+    }
+  }
+}
+
+object FileManifestStore {
+
+  private val locks = new HashMap[String, AnyRef]
+
+  private def lockFor(file : File) : AnyRef = locks.synchronized {
+    locks.getOrElseUpdate(file.getCanonicalPath, new Object)
+  }
+
+  /**
+   * stamp of the given content
+   * @param tape content
+   * @return length in the upper and checksum in the lower 32 bits
+   */
+  def stamp(tape : ManifestTape) : Long = (tape.size.toLong << 32) | tape.checksum
+}
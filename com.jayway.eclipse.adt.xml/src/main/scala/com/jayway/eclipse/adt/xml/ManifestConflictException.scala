@@ -0,0 +1,11 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.IOException
+
+ /**
+  * ManifestConflictException.
+  * Thrown when an edit can not be applied to the current version of a
+  * manifest, or a commit did not succeed after repeated concurrent changes.
+  * @param message description of the conflict
+  */
+class ManifestConflictException(message : String) extends IOException(message)
@@ -0,0 +1,21 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.IOException
+
+ /**
+  * ManifestEdit.
+  * A change of a manifest, see ManifestSnapshot. Edits are applied again to
+  * the latest version when a commit finds that the file was changed
+  * concurrently, so they must only depend on the tape they are applied to.
+  */
+trait ManifestEdit {
+
+  /**
+   * apply the edit
+   * @param tape version to change, not modified
+   * @return changed version, or the given tape if the edit is a no-op on it
+   * @throws ManifestConflictException if the edit can not be applied to this version
+   */
+  @throws(classOf[IOException])
+  def applyTo(tape : ManifestTape) : ManifestTape
+}
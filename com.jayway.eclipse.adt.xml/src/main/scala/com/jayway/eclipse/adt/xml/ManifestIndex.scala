@@ -0,0 +1,194 @@
+package com.jayway.eclipse.adt.xml
+
+import scala.collection.mutable.ArrayBuffer
+import scala.collection.mutable.HashMap
+import scala.collection.mutable.HashSet
+import scala.xml.Elem
+import scala.xml.MetaData
+import scala.xml.Node
+import scala.xml.Null
+import scala.xml.PrefixedAttribute
+
+ /**
+  * ManifestIndex.
+  * Hash indexes over the components of a manifest, built in one pass.
+  * Components are indexed by their fully qualified class name, intent
+  * filter actions and categories by the components declaring them.
+  */
+class ManifestIndex(val packageName : String) {
+
+  private val components = new HashMap[String, HashMap[String, Node]]
+  for (kind <- ManifestIndex.ComponentKinds) {
+    components(kind) = new HashMap[String, Node]
+  }
+  private val activities = new ArrayBuffer[Node]
+  private val actionIndex = new HashMap[String, HashSet[String]]
+  private val categoryIndex = new HashMap[String, HashSet[String]]
+  private var application : Node = null
+
+  /**
+   * get the application node
+   * @return application node or null if the manifest has none
+   */
+  def applicationNode : Node = application
+
+  /**
+   * get all activity nodes in document order
+   * @return activity nodes
+   */
+  def activityNodes : Seq[Node] = activities
+
+  /**
+   * get a component by kind and name
+   * @param kind one of "activity", "service", "receiver" or "provider"
+   * @param name class name, fully qualified or relative to the package
+   * @return component node
+   */
+  def component(kind : String, name : String) : Option[Node] = components.get(kind) match {
+    case Some(byName) => byName.get(qualify(name))
+    case None => None
+  }
+
+  /**
+   * check if a component is declared
+   * @param kind one of "activity", "service", "receiver" or "provider"
+   * @param name class name, fully qualified or relative to the package
+   * @return true if the manifest declares the component
+   */
+  def contains(kind : String, name : String) : Boolean = component(kind, name).isDefined
+
+  def containsActivity(name : String) : Boolean = contains("activity", name)
+
+  def containsService(name : String) : Boolean = contains("service", name)
+
+  def containsReceiver(name : String) : Boolean = contains("receiver", name)
+
+  def containsProvider(name : String) : Boolean = contains("provider", name)
+
+  /**
+   * get the names of the components with the given intent filter action
+   * @param action intent action
+   * @return fully qualified component names
+   */
+  def componentsWithAction(action : String) : scala.collection.Set[String] = lookup(actionIndex, action)
+
+  /**
+   * get the names of the components with the given intent filter category
+   * @param category intent category
+   * @return fully qualified component names
+   */
+  def componentsWithCategory(category : String) : scala.collection.Set[String] = lookup(categoryIndex, category)
+
+  /**
+   * resolve a class name relative to the package of the manifest
+   * @param name class name as used in the manifest, e.g. ".MyActivity"
+   * @return fully qualified class name
+   */
+  def qualify(name : String) : String = {
+    if (name == null) {
+      null
+    } else if (name.startsWith(".")) {
+      packageName + name
+    } else if (name.indexOf('.') < 0) {
+      packageName + "." + name
+    } else {
+      name
+    }
+  }
+
+  /**
+   * add a component and the actions and categories of its intent filters
+   * @param kind kind of component, the label of its element
+   * @param node component node
+   * @return fully qualified name of the component, null if it has no android:name
+   */
+  def addComponent(kind : String, node : Node) : String = {
+    if (kind == "activity") {
+      activities += node
+    }
+    val name = qualify(ManifestIndex.androidName(node))
+    // an unnamed component can not be looked up, neither through its filters
+    if (name != null) {
+      components(kind)(name) = node
+      for (filter <- node.child if filter.label == "intent-filter"; entry <- filter.child) {
+        entry.label match {
+          case "action" => add(actionIndex, ManifestIndex.androidName(entry), name)
+          case "category" => add(categoryIndex, ManifestIndex.androidName(entry), name)
+          case _ =>
+        }
+      }
+    }
+    name
+  }
+
+  private def visit(node : Node) {
+    node match {
+      case e : Elem =>
+        if (e.label == "application") {
+          application = e
+        }
+        if (components.contains(e.label)) {
+          addComponent(e.label, e)
+        } else {
+          for (child <- e.child) {
+            visit(child)
+          }
+        }
+      case _ =>
+    }
+  }
+
+  private def add(index : HashMap[String, HashSet[String]], key : String, name : String) {
+    if (key != null) {
+      index.get(key) match {
+        case Some(names) => names += name
+        case None =>
+          val names = new HashSet[String]
+          names += name
+          index(key) = names
+      }
+    }
+  }
+
+  private def lookup(index : HashMap[String, HashSet[String]], key : String) : scala.collection.Set[String] = {
+    index.get(key) match {
+      case Some(names) => names
+      case None => new HashSet[String]
+    }
+  }
+}
+
+object ManifestIndex {
+
+  /** labels of the indexed component elements */
+  val ComponentKinds = List("activity", "service", "receiver", "provider")
+
+  /**
+   * build the index for the given manifest in one pass
+   * @param root manifest node
+   * @return index
+   */
+  def build(root : Node) : ManifestIndex = {
+    val index = new ManifestIndex((root \ "@package").text)
+    index.visit(root)
+    index
+  }
+
+  /**
+   * get the value of the android:name attribute
+   * @param node element
+   * @return name or null if the element has none
+   */
+  def androidName(node : Node) : String = {
+    var attribute : MetaData = node.attributes
+    while (attribute != Null) {
+      attribute match {
+        case prefixed : PrefixedAttribute if prefixed.key == "name" =>
+          return prefixed.value.map(_.text).mkString("")
+        case _ =>
+      }
+      attribute = attribute.next
+    }
+    null
+  }
+}
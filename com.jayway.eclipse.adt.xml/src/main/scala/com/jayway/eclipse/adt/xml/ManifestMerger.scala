@@ -0,0 +1,393 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.BufferedOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.OutputStream
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+
+import scala.collection.mutable.ArrayBuffer
+import scala.collection.mutable.HashMap
+import scala.collection.mutable.HashSet
+import scala.xml.Utility
+
+ /**
+  * ManifestMerger.
+  * Merges the manifests of library projects into the manifest of an app.
+  * The inputs are read in parallel as ManifestTape, no DOM is built. The
+  * merged manifest is written in one pass: the bytes of the app manifest,
+  * with the permissions and features of the libraries in front of the
+  * application element and their components, libraries and meta-data at
+  * its end. Formatting and comments of the app manifest are kept, copied
+  * elements keep the formatting of their library.
+  *
+  * Elements are de-duplicated by kind and name, the app comes first and
+  * then the libraries in the given order. Relative class names of library
+  * components, i.e. the name, the target activity of aliases and the parent
+  * activity, are qualified with the package of the library. If a component
+  * is declared again, the intent filters the first declaration does not
+  * have are added to it.
+  * @param app manifest of the app
+  * @param libraries manifests of the libraries
+  */
+class ManifestMerger(app : File, libraries : Seq[File]) {
+
+  import ManifestMerger._
+
+  /**
+   * convenience constructor for java callers
+   */
+  def this(app : File, libraries : Array[File]) = this(app, libraries.toList)
+
+  /**
+   * write the merged manifest to a file, the file may be one of the inputs.
+   * The manifest is written to a temporary file that replaces the file by
+   * rename, so a failed merge leaves the file as it was.
+   * @param file output file
+   */
+  @throws(classOf[IOException])
+  def mergeTo(file : File) {
+    val tapes = load()
+    val temp = File.createTempFile(file.getName, ".tmp", file.getAbsoluteFile.getParentFile)
+    var keep = false
+    try {
+      val stream = new FileOutputStream(temp)
+      try {
+        val out = new BufferedOutputStream(stream)
+        write(tapes, out)
+        out.flush()
+        stream.getFD.sync()
+      } finally {
+        stream.close()
+      }
+      if (!temp.renameTo(file)) {
+        // platforms that can not rename over an existing file
+        if (!file.delete()) {
+          throw new IOException("Could not replace " + file)
+        }
+        if (!temp.renameTo(file)) {
+          keep = true
+          throw new IOException("Could not rename " + temp + " to " + file)
+        }
+      }
+    } finally {
+      if (!keep) {
+        temp.delete()
+      }
+    }
+  }
+
+  /**
+   * write the merged manifest to a stream
+   * @param out stream to write to, not closed
+   */
+  @throws(classOf[IOException])
+  def mergeTo(out : OutputStream) {
+    write(load(), out)
+  }
+
+  /**
+   * read all manifests in parallel
+   * @return tapes of the app and the libraries
+   */
+  @throws(classOf[IOException])
+  private def load() : List[ManifestTape] = {
+    val files = app :: libraries.toList
+    val threads = Math.max(1, Math.min(files.length, Runtime.getRuntime.availableProcessors))
+    val pool = Executors.newFixedThreadPool(threads)
+    try {
+      val futures = files.map(file => pool.submit(new Callable[ManifestTape] {
+        def call() : ManifestTape = ManifestTape.load(file)
+      }))
+      for ((file, future) <- files.zip(futures)) yield {
+        try {
+          future.get
+        } catch {
+          case e : ExecutionException =>
+            val exception = new IOException("Could not read " + file + ": " + e.getCause.getMessage)
+            exception.initCause(e.getCause)
+            throw exception
+        }
+      }
+    } finally {
+      pool.shutdown()
+    }
+  }
+
+  @throws(classOf[IOException])
+  private def write(tapes : List[ManifestTape], out : OutputStream) {
+    val merged = tapes.head
+    val plan = new Plan
+    for (tape <- tapes) {
+      plan.add(tape, !(tape eq merged))
+    }
+    val application = merged.applicationElement
+    if (plan.isEmpty) {
+      merged.write(out)
+      return
+    }
+    if (application < 0) {
+      throw new IOException("No application element in " + app)
+    }
+    val nl = merged.lineSeparator
+    var pos = 0
+    if (!plan.top.isEmpty) {
+      val start = merged.start(application)
+      val at = merged.lineStart(start)
+      merged.write(out, pos, at)
+      writeParts(out, plan.top, merged.text(at, start), nl)
+      pos = at
+    }
+    for (part <- plan.extended(merged)) {
+      pos = append(out, merged, part.element, pos, part.filters, nl)
+    }
+    if (!plan.children.isEmpty) {
+      pos = append(out, merged, application, pos, plan.children, nl)
+    }
+    merged.write(out, pos, merged.size)
+  }
+}
+
+object ManifestMerger {
+
+  /** elements of the manifest element that are merged */
+  val TopLevelKinds = List("permission", "permission-group", "permission-tree", "uses-permission", "uses-feature")
+
+  /** components of the application element, identified by their qualified name */
+  val ComponentKinds = "activity-alias" :: ManifestIndex.ComponentKinds
+
+  /** other elements of the application element that are merged */
+  val ApplicationKinds = List("uses-library", "meta-data")
+
+  private val Indent = "    "
+  private val IntentFilter = "intent-filter"
+  private val DataAttributes = List("scheme", "host", "port", "path", "pathPrefix", "pathPattern", "mimeType")
+  private val ClassAttributes = List("name", "targetActivity", "parentActivityName")
+
+  /**
+   * element to write, with the attribute values to write instead of its
+   * own, as start and end offset and new value in document order, and the
+   * intent filters to add
+   */
+  private class Part(val tape : ManifestTape, val element : Int, val values : List[(Int, Int, String)]) {
+    val filters = new ArrayBuffer[Part]
+    private var keys : HashSet[String] = null
+
+    /**
+     * keys of the intent filters of the element and the added ones,
+     * computed when the element is declared again
+     */
+    def filterKeys : HashSet[String] = {
+      if (keys == null) {
+        keys = new HashSet[String]
+        for (filter <- intentFilters(tape, element)) {
+          keys += filterKey(tape, filter)
+        }
+      }
+      keys
+    }
+  }
+
+  /**
+   * elements to add to the app manifest
+   */
+  private class Plan {
+    val top = new ArrayBuffer[Part]
+    val children = new ArrayBuffer[Part]
+    private val parts = new HashMap[String, Part]
+
+    def isEmpty : Boolean = top.isEmpty && children.isEmpty && parts.values.forall(_.filters.isEmpty)
+
+    /**
+     * the components of the given tape that get intent filters, in document order
+     */
+    def extended(tape : ManifestTape) : List[Part] = {
+      parts.values.filter(part => (part.tape eq tape) && !part.filters.isEmpty).toList
+          .sort((a, b) => a.element < b.element)
+    }
+
+    def add(tape : ManifestTape, library : Boolean) {
+      val application = tape.applicationElement
+      var e = 1
+      while (e < tape.elementCount) {
+        val parent = tape.parent(e)
+        if (parent == 0 || (parent == application && application >= 0)) {
+          val kind = tape.label(e)
+          val component = parent == application && ComponentKinds.contains(kind)
+          if (component || (parent == 0 && TopLevelKinds.contains(kind))
+              || (parent == application && ApplicationKinds.contains(kind))) {
+            val raw = tape.androidName(e)
+            val name = if (component) tape.qualify(raw) else raw
+            val key = kind + " " + (if (name == null) tape.text(tape.start(e), tape.end(e)) else name)
+            parts.get(key) match {
+              case Some(first) =>
+                if (component) {
+                  addFilters(first, tape, e)
+                }
+              case None =>
+                val part = new Part(tape, e, if (library && component) qualifiedValues(tape, e) else Nil)
+                parts(key) = part
+                if (library) {
+                  if (parent == 0) top += part else children += part
+                }
+            }
+          }
+        }
+        e += 1
+      }
+    }
+
+    private def addFilters(first : Part, tape : ManifestTape, component : Int) {
+      for (filter <- intentFilters(tape, component)) {
+        val key = filterKey(tape, filter)
+        if (!first.filterKeys.contains(key)) {
+          first.filterKeys += key
+          first.filters += new Part(tape, filter, Nil)
+        }
+      }
+    }
+  }
+
+  /**
+   * the class names of a library component that are relative to its package
+   */
+  private def qualifiedValues(tape : ManifestTape, component : Int) : List[(Int, Int, String)] = {
+    ClassAttributes.flatMap(name => {
+      val raw = tape.androidAttribute(component, name)
+      val qualified = tape.qualify(raw)
+      if (qualified == raw) {
+        Nil
+      } else {
+        List((tape.androidValueStart(component, name), tape.androidValueEnd(component, name), qualified))
+      }
+    }).sort((a, b) => a._1 < b._1)
+  }
+
+  private def children(tape : ManifestTape, element : Int) : List[Int] = {
+    var result : List[Int] = Nil
+    val end = tape.end(element)
+    var e = element + 1
+    while (e < tape.elementCount && tape.start(e) < end) {
+      if (tape.parent(e) == element) {
+        result = e :: result
+      }
+      e += 1
+    }
+    result.reverse
+  }
+
+  private def intentFilters(tape : ManifestTape, component : Int) : List[Int] = {
+    children(tape, component).filter(e => tape.label(e) == IntentFilter)
+  }
+
+  /**
+   * the actions, categories and data of an intent filter, in any order
+   */
+  private def filterKey(tape : ManifestTape, filter : Int) : String = {
+    children(tape, filter).map(e => {
+      val label = tape.label(e)
+      if (label == "data") {
+        label + " " + DataAttributes.map(name => tape.androidAttribute(e, name)).mkString(",")
+      } else {
+        label + " " + tape.androidName(e)
+      }
+    }).sort((a, b) => a < b).mkString("|")
+  }
+
+  /**
+   * add parts as last children of an element of the app manifest
+   * @return offset in the app manifest to continue with
+   */
+  private def append(out : OutputStream, tape : ManifestTape, element : Int, pos : Int, parts : Seq[Part],
+      nl : String) : Int = {
+    val close = tape.closeStart(element)
+    if (tape.isEmptyElement(element)) {
+      val indent = indentOf(tape, tape.start(element))
+      tape.write(out, pos, close)
+      write(out, ">" + nl)
+      writeParts(out, parts, indent + Indent, nl)
+      write(out, indent + "</" + tape.label(element) + ">")
+      tape.end(element)
+    } else {
+      val at = tape.lineStart(close)
+      tape.write(out, pos, at)
+      if (at == close) {
+        write(out, nl)
+      }
+      writeParts(out, parts, tape.text(at, close) + Indent, nl)
+      at
+    }
+  }
+
+  private def writeParts(out : OutputStream, parts : Seq[Part], indent : String, nl : String) {
+    for (part <- parts) {
+      write(out, indent)
+      writePart(out, part, indent, nl)
+      write(out, nl)
+    }
+  }
+
+  /**
+   * write an element of a library with its new name and added filters
+   */
+  private def writePart(out : OutputStream, part : Part, indent : String, nl : String) {
+    val tape = part.tape
+    val e = part.element
+    var pos = tape.start(e)
+    for ((start, end, value) <- part.values) {
+      tape.write(out, pos, start)
+      write(out, Utility.escape(value))
+      pos = end
+    }
+    val close = tape.closeStart(e)
+    if (part.filters.isEmpty) {
+      tape.write(out, pos, tape.end(e))
+    } else if (tape.isEmptyElement(e)) {
+      tape.write(out, pos, close)
+      write(out, ">" + nl)
+      writeParts(out, part.filters, indent + Indent, nl)
+      write(out, indent + "</" + tape.label(e) + ">")
+    } else {
+      val at = tape.lineStart(close)
+      tape.write(out, pos, at)
+      if (at == close) {
+        write(out, nl)
+      }
+      writeParts(out, part.filters, indent + Indent, nl)
+      write(out, indent)
+      tape.write(out, close, tape.end(e))
+    }
+  }
+
+  private def indentOf(tape : ManifestTape, offset : Int) : String = tape.text(tape.lineStart(offset), offset)
+
+  private def write(out : OutputStream, text : String) {
+    out.write(text.getBytes("UTF-8"))
+  }
+}
+
+ /**
+  * ManifestMergeTool.
+  * Command line entry of the ManifestMerger, for builds without eclipse:
+  * ManifestMergeTool output app-manifest [library-manifest ...]
+  */
+object ManifestMergeTool {
+
+  def main(args : Array[String]) {
+    if (args.length < 2) {
+      System.err.println("usage: ManifestMergeTool <output> <app manifest> [<library manifest> ...]")
+      System.exit(1)
+    }
+    val files = args.toList.map(name => new File(name))
+    try {
+      new ManifestMerger(files(1), files.drop(2)).mergeTo(files(0))
+    } catch {
+      case e : IOException =>
+        System.err.println(e.getMessage)
+        System.exit(1)
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.IOException
+
+ /**
+  * ManifestSnapshot.
+  * Immutable version of a manifest: the content read at a modification
+  * stamp plus the edits made since. Each edit returns a new snapshot that
+  * shares the older one, its content is computed on first use from the
+  * content of the older snapshot. Commit a snapshot with a ManifestStore.
+  */
+class ManifestSnapshot private (private val parent : ManifestSnapshot, private val change : ManifestEdit,
+    val base : ManifestTape, val stamp : Long) {
+
+  private var content : ManifestTape = null
+
+  /**
+   * create the snapshot of a stored version
+   * @param base content of the version
+   * @param stamp modification stamp of the version
+   */
+  def this(base : ManifestTape, stamp : Long) = this(null, null, base, stamp)
+
+  /**
+   * get the content with all edits applied
+   * @return content
+   * @throws ManifestConflictException if an edit can not be applied
+   */
+  @throws(classOf[IOException])
+  def tape : ManifestTape = synchronized {
+    if (content == null) {
+      content = if (parent == null) base else change.applyTo(parent.tape)
+    }
+    content
+  }
+
+  /**
+   * make an edit, this snapshot is not changed
+   * @param edit edit to make
+   * @return new snapshot
+   */
+  def edit(edit : ManifestEdit) : ManifestSnapshot = new ManifestSnapshot(this, edit, base, stamp)
+
+  /**
+   * @return edits since the stored version, the oldest first
+   */
+  def edits : List[ManifestEdit] = {
+    var result : List[ManifestEdit] = Nil
+    var snapshot : ManifestSnapshot = this
+    while (snapshot.parent != null) {
+      result = snapshot.change :: result
+      snapshot = snapshot.parent
+    }
+    result
+  }
+
+  /**
+   * @return true if edits were made since the stored version
+   */
+  def isEdited : Boolean = parent != null
+
+  /**
+   * make the edits of this snapshot again on another stored version
+   * @param base content of the version
+   * @param stamp modification stamp of the version
+   * @return new snapshot
+   */
+  def rebase(base : ManifestTape, stamp : Long) : ManifestSnapshot = {
+    var result = new ManifestSnapshot(base, stamp)
+    for (e <- edits) {
+      result = result.edit(e)
+    }
+    result
+  }
+
+  /**
+   * check if the manifest declares the given activity, with all edits applied
+   * @param activityName name of the activity, fully qualified or relative to the package
+   * @return true if the activity is declared
+   */
+  @throws(classOf[IOException])
+  def containsActivity(activityName : String) : Boolean = tape.containsActivity(activityName)
+}
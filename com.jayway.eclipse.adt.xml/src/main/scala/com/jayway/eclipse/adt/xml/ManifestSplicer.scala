@@ -0,0 +1,164 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+
+import scala.xml.Node
+import scala.xml.PrettyPrinter
+
+ /**
+  * ManifestSplicer.
+  * Inserts xml fragments into a manifest file by splicing bytes, without
+  * building a DOM. Formatting and comments of the file are kept.
+  */
+object ManifestSplicer {
+
+  private val ApplicationEnd = "</application".getBytes("UTF-8")
+  private val CommentStart = "<!--".getBytes("UTF-8")
+  private val CommentEnd = "-->".getBytes("UTF-8")
+  private val CDataStart = "<![CDATA[".getBytes("UTF-8")
+  private val CDataEnd = "]]>".getBytes("UTF-8")
+  private val PIStart = "<?".getBytes("UTF-8")
+  private val PIEnd = "?>".getBytes("UTF-8")
+
+  private val Lt = '<'.toByte
+  private val Gt = '>'.toByte
+  private val Slash = '/'.toByte
+  private val Space = ' '.toByte
+  private val Tab = '\t'.toByte
+  private val Cr = '\r'.toByte
+  private val Lf = '\n'.toByte
+
+  private val Indent = "    "
+  private val Width = 120
+
+  /**
+   * find the offset of the closing application tag in one pass, skipping
+   * comments, CDATA sections and processing instructions
+   * @param bytes manifest content
+   * @param length number of valid bytes
+   * @return offset of "</application" or -1 if there is none
+   */
+  def findApplicationEnd(bytes : Array[Byte], length : Int) : Int = {
+    var result = -1
+    var i = 0
+    while (i < length) {
+      if (bytes(i) != Lt) {
+        i += 1
+      } else if (matches(bytes, length, i, CommentStart)) {
+        i = skipPast(bytes, length, i + CommentStart.length, CommentEnd)
+      } else if (matches(bytes, length, i, CDataStart)) {
+        i = skipPast(bytes, length, i + CDataStart.length, CDataEnd)
+      } else if (matches(bytes, length, i, PIStart)) {
+        i = skipPast(bytes, length, i + PIStart.length, PIEnd)
+      } else if (matches(bytes, length, i, ApplicationEnd) && isNameEnd(bytes, length, i + ApplicationEnd.length)) {
+        result = i
+        i += ApplicationEnd.length
+      } else {
+        i += 1
+      }
+    }
+    result
+  }
+
+  /**
+   * insert the given fragments as last children of the application element.
+   * The spliced content is written with ManifestWriter, to a temporary file
+   * that replaces the manifest, so a failed write leaves the file intact.
+   * @param file manifest file
+   * @param fragments xml to insert
+   */
+  @throws(classOf[IOException])
+  def insert(file : File, fragments : Seq[Node]) {
+    val raf = new RandomAccessFile(file, "r")
+    val bytes = try {
+      val content = new Array[Byte](raf.length.toInt)
+      raf.readFully(content)
+      content
+    } finally {
+      raf.close()
+    }
+    val offset = findApplicationEnd(bytes, bytes.length)
+    if (offset < 0) {
+      throw new IOException("No closing application tag in " + file)
+    }
+    val spliced = splice(bytes, bytes.length, offset, fragments)
+    ManifestWriter.write(file, spliced, spliced.length)
+  }
+
+  /**
+   * insert the given fragments in front of the closing application tag at
+   * the given offset, in memory. Used by ManifestTape.
+   * @param bytes manifest content
+   * @param length number of valid bytes
+   * @param offset offset of "</application"
+   * @param fragments xml to insert
+   * @return new content
+   */
+  def splice(bytes : Array[Byte], length : Int, offset : Int, fragments : Seq[Node]) : Array[Byte] = {
+    val position = insertPosition(bytes, offset)
+    val text = format(fragments, bytes, position, offset).getBytes("UTF-8")
+    val result = new Array[Byte](length + text.length)
+    System.arraycopy(bytes, 0, result, 0, position)
+    System.arraycopy(text, 0, result, position, text.length)
+    System.arraycopy(bytes, position, result, position + text.length, length - position)
+    result
+  }
+
+  /**
+   * the insert position is the start of the line of the closing tag, if
+   * the tag is only indented, otherwise the tag itself
+   */
+  private[xml] def insertPosition(bytes : Array[Byte], offset : Int) : Int = {
+    var lineStart = offset
+    while (lineStart > 0 && (bytes(lineStart - 1) == Space || bytes(lineStart - 1) == Tab)) {
+      lineStart -= 1
+    }
+    if (lineStart == 0 || bytes(lineStart - 1) == Lf) lineStart else offset
+  }
+
+  private def format(fragments : Seq[Node], bytes : Array[Byte], position : Int, offset : Int) : String = {
+    val closingIndent = new String(bytes, position, offset - position, "UTF-8")
+    val newline = if (position > 1 && bytes(position - 2) == Cr) "\r\n" else "\n"
+    val printer = new PrettyPrinter(Width, Indent.length)
+    val sb = new StringBuilder
+    if (position == offset) {
+      sb.append(newline)
+    }
+    for (fragment <- fragments; line <- printer.format(fragment).split("\n")) {
+      sb.append(closingIndent).append(Indent).append(line).append(newline)
+    }
+    sb.toString
+  }
+
+  private def matches(bytes : Array[Byte], length : Int, offset : Int, pattern : Array[Byte]) : Boolean = {
+    if (offset + pattern.length > length) {
+      return false
+    }
+    var i = 0
+    while (i < pattern.length) {
+      if (bytes(offset + i) != pattern(i)) {
+        return false
+      }
+      i += 1
+    }
+    true
+  }
+
+  private def skipPast(bytes : Array[Byte], length : Int, offset : Int, pattern : Array[Byte]) : Int = {
+    var i = offset
+    while (i < length && !matches(bytes, length, i, pattern)) {
+      i += 1
+    }
+    Math.min(length, i + pattern.length)
+  }
+
+  private def isNameEnd(bytes : Array[Byte], length : Int, offset : Int) : Boolean = {
+    if (offset >= length) {
+      return true
+    }
+    val b = bytes(offset)
+    b == Gt || b == Slash || b == Space || b == Tab || b == Cr || b == Lf
+  }
+}
@@ -0,0 +1,64 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.IOException
+
+ /**
+  * ManifestStore.
+  * Storage of a manifest with optimistic commits: a snapshot is written
+  * only if the stored version still has the stamp the snapshot was read at,
+  * otherwise its edits are applied again to the latest version. Writers
+  * never lock the manifest while they edit.
+  */
+abstract class ManifestStore {
+
+  /** attempts of a commit before it gives up */
+  val maxAttempts = 10
+
+  /**
+   * read the current version. Implementations must read the stamp before
+   * the content, so a concurrent write can only make the stamp too old.
+   * @return snapshot of the current version
+   */
+  @throws(classOf[IOException])
+  def read() : ManifestSnapshot
+
+  /**
+   * write the given content if the stored version has the expected stamp,
+   * atomically with respect to other commits
+   * @param expectedStamp stamp the content is based on
+   * @param tape content to write
+   * @return stamp of the written version or -1 if the stored version has another stamp
+   */
+  @throws(classOf[IOException])
+  def compareAndSet(expectedStamp : Long, tape : ManifestTape) : Long
+
+  /**
+   * commit the edits of a snapshot. If the manifest was changed since the
+   * snapshot was read, the edits are applied to the latest version and the
+   * commit is retried. Nothing is written if the edits do not change the content.
+   * @param snapshot edited snapshot
+   * @return snapshot of the committed version
+   * @throws ManifestConflictException if an edit does not apply to the latest
+   * version or the manifest kept changing
+   */
+  @throws(classOf[IOException])
+  def commit(snapshot : ManifestSnapshot) : ManifestSnapshot = {
+    var current = snapshot
+    var attempt = 0
+    while (attempt < maxAttempts) {
+      val tape = current.tape
+      if (tape.sameContent(current.base)) {
+        return new ManifestSnapshot(tape, current.stamp)
+      }
+      val stamp = compareAndSet(current.stamp, tape)
+      if (stamp != -1) {
+        return new ManifestSnapshot(tape, stamp)
+      }
+      val latest = read()
+      current = current.rebase(latest.base, latest.stamp)
+      attempt += 1
+    }
+    throw new ManifestConflictException("Manifest changed during " + maxAttempts + " attempts to commit " +
+        snapshot.edits.mkString(", "))
+  }
+}
@@ -0,0 +1,900 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.io.OutputStream
+import java.util.zip.CRC32
+
+import scala.collection.mutable.HashSet
+import scala.xml.Node
+
+ /**
+  * ManifestTape.
+  * Read-only representation of a manifest: the raw UTF-8 bytes of the file
+  * plus two int arrays, one with the offsets of every element and one with
+  * the offsets of every attribute, built in one pass without a DOM. Unlike
+  * the scala.xml tree there is no object per element, attribute or
+  * whitespace run, the heap use is about the file size plus 24 bytes per
+  * element and 16 bytes per attribute.
+  *
+  * Elements are numbered in document order. Component lookups use a hash
+  * table of element numbers and compare names on the bytes, attribute
+  * values are only decoded to strings when they are returned. Names are
+  * compared undecoded, character references in component names are not
+  * supported.
+  */
+class ManifestTape(private val bytes : Array[Byte], private val length : Int) {
+
+  import ManifestTape._
+
+  private val (elements, attributes) = new Scanner(bytes, length).scan()
+
+  /** number of elements */
+  val elementCount : Int = elements.length / ElementStride - 1
+
+  private val packageBytes : Array[Byte] = {
+    val attribute = if (elementCount > 0) findAttribute(0, PackageAttribute) else -1
+    if (attribute < 0) new Array[Byte](0) else copy(valueStart(attribute), valueEnd(attribute))
+  }
+
+  private val application : Int = {
+    var result = -1
+    var e = 0
+    while (result < 0 && e < elementCount) {
+      if (labelIs(e, ApplicationLabel)) {
+        result = e
+      }
+      e += 1
+    }
+    result
+  }
+
+  private var componentTable : Array[Int] = null
+  private var lineTable : Array[Int] = null
+
+  /**
+   * the package attribute of the manifest element
+   */
+  def packageName : String = new String(packageBytes, "UTF-8")
+
+  /**
+   * get the application element
+   * @return element number or -1 if the manifest has none
+   */
+  def applicationElement : Int = application
+
+  /**
+   * @param element element number
+   * @return name of the element, e.g. "activity"
+   */
+  def label(element : Int) : String = {
+    val start = elements(element * ElementStride + Start) + 1
+    new String(bytes, start, elements(element * ElementStride + NameEnd) - start, "UTF-8")
+  }
+
+  /**
+   * @param element element number
+   * @return number of the parent element or -1 for the root
+   */
+  def parent(element : Int) : Int = elements(element * ElementStride + Parent)
+
+  /**
+   * @param element element number
+   * @return offset of the start tag
+   */
+  def start(element : Int) : Int = elements(element * ElementStride + Start)
+
+  /**
+   * @param element element number
+   * @return offset after the end tag
+   */
+  def end(element : Int) : Int = elements(element * ElementStride + End)
+
+  /**
+   * @param element element number
+   * @return offset of the end tag, or of "/>" for empty elements
+   */
+  def closeStart(element : Int) : Int = elements(element * ElementStride + CloseStart)
+
+  /**
+   * @param element element number
+   * @return true if the element is written as empty element tag, "<label/>"
+   */
+  def isEmptyElement(element : Int) : Boolean = closeStart(element) == end(element) - 2
+
+  /**
+   * @param element element number
+   * @param localName attribute name without prefix, e.g. "name"
+   * @return offset of the value of the android attribute, or -1 if the element has none
+   */
+  def androidValueStart(element : Int, localName : String) : Int = {
+    val attribute = findLocal(element, localSuffix(localName))
+    if (attribute < 0) -1 else valueStart(attribute)
+  }
+
+  /**
+   * @param element element number
+   * @param localName attribute name without prefix, e.g. "name"
+   * @return offset after the value of the android attribute, or -1 if the element has none
+   */
+  def androidValueEnd(element : Int, localName : String) : Int = {
+    val attribute = findLocal(element, localSuffix(localName))
+    if (attribute < 0) -1 else valueEnd(attribute)
+  }
+
+  /**
+   * @param offset offset of a tag
+   * @return start of the line of the tag if it is only indented, otherwise the offset
+   */
+  def lineStart(offset : Int) : Int = ManifestSplicer.insertPosition(bytes, offset)
+
+  /**
+   * @return line separator of the content, "\r\n" or "\n"
+   */
+  def lineSeparator : String = {
+    val lf = indexOf('\n'.toByte, 0, length)
+    if (lf > 0 && bytes(lf - 1) == '\r') "\r\n" else "\n"
+  }
+
+  /**
+   * @param from start offset
+   * @param to end offset
+   * @return the content between the offsets as string
+   */
+  def text(from : Int, to : Int) : String = new String(bytes, from, to - from, "UTF-8")
+
+  /**
+   * the offsets of the line starts are collected on first use, a line is
+   * then found by binary search
+   * @param element element number
+   * @return line number of the start tag, starting at 1
+   */
+  def line(element : Int) : Int = {
+    val table = getLineTable()
+    val offset = start(element)
+    var low = 0
+    var high = table.length - 1
+    while (low < high) {
+      val middle = (low + high + 1) >>> 1
+      if (table(middle) <= offset) low = middle else high = middle - 1
+    }
+    low + 1
+  }
+
+  /**
+   * get the decoded value of an attribute
+   * @param element element number
+   * @param name attribute name including the prefix, e.g. "android:name"
+   * @return value or null if the element has no such attribute
+   */
+  def attribute(element : Int, name : String) : String = {
+    val attribute = findAttribute(element, name.getBytes("UTF-8"))
+    if (attribute < 0) null else decode(valueStart(attribute), valueEnd(attribute))
+  }
+
+  /**
+   * get the decoded value of an attribute of the android namespace, the prefix may differ
+   * @param element element number
+   * @param localName attribute name without prefix, e.g. "targetActivity"
+   * @return value or null if the element has no such attribute
+   */
+  def androidAttribute(element : Int, localName : String) : String = {
+    val attribute = findLocal(element, localSuffix(localName))
+    if (attribute < 0) null else decode(valueStart(attribute), valueEnd(attribute))
+  }
+
+  /**
+   * get the value of the android:name attribute, the prefix may differ
+   * @param element element number
+   * @return name or null if the element has none
+   */
+  def androidName(element : Int) : String = {
+    val attribute = findName(element)
+    if (attribute < 0) null else decode(valueStart(attribute), valueEnd(attribute))
+  }
+
+  /**
+   * get a component by kind and name
+   * @param kind one of "activity", "service", "receiver" or "provider"
+   * @param name class name, fully qualified or relative to the package
+   * @return element number or -1 if the manifest does not declare it
+   */
+  def component(kind : String, name : String) : Int = {
+    if (name == null) {
+      return -1
+    }
+    val table = getComponentTable()
+    val qualified = qualify(name).getBytes("UTF-8")
+    val kindBytes = kind.getBytes("UTF-8")
+    val mask = table.length - 1
+    var slot = mix(hash(qualified, 0, qualified.length, 0)) & mask
+    while (table(slot) != 0) {
+      val element = table(slot) - 1
+      if (labelIs(element, kindBytes) && qualifiedNameEquals(findName(element), qualified)) {
+        return element
+      }
+      slot = (slot + 1) & mask
+    }
+    -1
+  }
+
+  /**
+   * check if a component is declared
+   * @param kind one of "activity", "service", "receiver" or "provider"
+   * @param name class name, fully qualified or relative to the package
+   * @return true if the manifest declares the component
+   */
+  def contains(kind : String, name : String) : Boolean = component(kind, name) >= 0
+
+  def containsActivity(name : String) : Boolean = contains("activity", name)
+
+  def containsService(name : String) : Boolean = contains("service", name)
+
+  def containsReceiver(name : String) : Boolean = contains("receiver", name)
+
+  def containsProvider(name : String) : Boolean = contains("provider", name)
+
+  /**
+   * get all activity elements in document order
+   * @return element numbers
+   */
+  def activityElements : Array[Int] = {
+    var count = 0
+    var e = 0
+    while (e < elementCount) {
+      if (labelIs(e, ActivityLabel)) count += 1
+      e += 1
+    }
+    val result = new Array[Int](count)
+    count = 0
+    e = 0
+    while (e < elementCount) {
+      if (labelIs(e, ActivityLabel)) {
+        result(count) = e
+        count += 1
+      }
+      e += 1
+    }
+    result
+  }
+
+  /**
+   * get the names of the components with the given intent filter action
+   * @param action intent action
+   * @return fully qualified component names
+   */
+  def componentsWithAction(action : String) : scala.collection.Set[String] = componentsWith(ActionLabel, action)
+
+  /**
+   * get the names of the components with the given intent filter category
+   * @param category intent category
+   * @return fully qualified component names
+   */
+  def componentsWithCategory(category : String) : scala.collection.Set[String] = componentsWith(CategoryLabel, category)
+
+  /**
+   * resolve a class name relative to the package of the manifest
+   * @param name class name as used in the manifest, e.g. ".MyActivity"
+   * @return fully qualified class name
+   */
+  def qualify(name : String) : String = {
+    if (name == null) {
+      null
+    } else if (name.startsWith(".")) {
+      packageName + name
+    } else if (name.indexOf('.') < 0) {
+      packageName + "." + name
+    } else {
+      name
+    }
+  }
+
+  /**
+   * insert the given activities as last children of the application
+   * element, see ManifestSplicer. The bytes are spliced once and the new
+   * content is scanned again, this tape is not changed.
+   * @param activities activities to insert
+   * @return tape of the new content
+   */
+  @throws(classOf[IOException])
+  def insert(activities : Seq[Node]) : ManifestTape = {
+    if (application < 0 || closeStart(application) == end(application) - 2) {
+      throw new IOException("No closing application tag")
+    }
+    val spliced = ManifestSplicer.splice(bytes, length, closeStart(application), activities)
+    new ManifestTape(spliced, spliced.length)
+  }
+
+  /**
+   * write the content
+   * @param out stream to write to, not closed
+   */
+  @throws(classOf[IOException])
+  def write(out : OutputStream) {
+    out.write(bytes, 0, length)
+  }
+
+  /**
+   * write a part of the content
+   * @param out stream to write to, not closed
+   * @param from start offset
+   * @param to end offset
+   */
+  @throws(classOf[IOException])
+  def write(out : OutputStream, from : Int, to : Int) {
+    out.write(bytes, from, to - from)
+  }
+
+  /**
+   * write the content to the given file, if it differs from the content of
+   * the file, see ManifestWriter
+   * @param file file to write to
+   * @return true if the file was written
+   */
+  @throws(classOf[IOException])
+  def writeTo(file : File) : Boolean = ManifestWriter.write(file, bytes, length)
+
+  /**
+   * compare the content with the content of another tape
+   * @param other tape to compare with
+   * @return true if both contents have the same bytes
+   */
+  def sameContent(other : ManifestTape) : Boolean = {
+    if (other.length != length) {
+      return false
+    }
+    if (other.bytes eq bytes) {
+      return true
+    }
+    var i = 0
+    while (i < length && other.bytes(i) == bytes(i)) {
+      i += 1
+    }
+    i == length
+  }
+
+  /**
+   * @return number of bytes of the content
+   */
+  def size : Int = length
+
+  /**
+   * @return CRC-32 checksum of the content
+   */
+  def checksum : Long = {
+    val crc = new CRC32
+    crc.update(bytes, 0, length)
+    crc.getValue
+  }
+
+  /**
+   * @return the content as string
+   */
+  override def toString : String = new String(bytes, 0, length, "UTF-8")
+
+  private def componentsWith(entryLabel : Array[Byte], value : String) : scala.collection.Set[String] = {
+    val result = new HashSet[String]
+    val valueBytes = value.getBytes("UTF-8")
+    var e = 0
+    while (e < elementCount) {
+      if (labelIs(e, entryLabel) && valueEquals(findName(e), valueBytes)) {
+        val filter = parent(e)
+        val component = if (filter >= 0 && labelIs(filter, IntentFilterLabel)) parent(filter) else -1
+        if (component >= 0 && isComponent(component)) {
+          result += qualify(androidName(component))
+        }
+      }
+      e += 1
+    }
+    result
+  }
+
+  private def getLineTable() : Array[Int] = synchronized {
+    if (lineTable == null) {
+      val starts = new IntBuffer(Math.max(64, length / 32))
+      starts.add(0)
+      var i = 0
+      while (i < length) {
+        if (bytes(i) == Lf) starts.add(i + 1)
+        i += 1
+      }
+      lineTable = starts.toArray
+    }
+    lineTable
+  }
+
+  private def getComponentTable() : Array[Int] = synchronized {
+    if (componentTable == null) {
+      var count = 0
+      var e = 0
+      while (e < elementCount) {
+        if (isComponent(e) && findName(e) >= 0) count += 1
+        e += 1
+      }
+      var size = 16
+      while (size < count * 2) {
+        size *= 2
+      }
+      val table = new Array[Int](size)
+      val mask = size - 1
+      e = 0
+      while (e < elementCount) {
+        val name = if (isComponent(e)) findName(e) else -1
+        if (name >= 0) {
+          var slot = qualifiedHash(name) & mask
+          while (table(slot) != 0) {
+            slot = (slot + 1) & mask
+          }
+          table(slot) = e + 1
+        }
+        e += 1
+      }
+      componentTable = table
+    }
+    componentTable
+  }
+
+  private def isComponent(element : Int) : Boolean = {
+    var i = 0
+    while (i < ComponentLabels.length) {
+      if (labelIs(element, ComponentLabels(i))) {
+        return true
+      }
+      i += 1
+    }
+    false
+  }
+
+  private def labelIs(element : Int, label : Array[Byte]) : Boolean = {
+    val start = elements(element * ElementStride + Start) + 1
+    regionEquals(start, elements(element * ElementStride + NameEnd), label, 0, label.length)
+  }
+
+  private def findAttribute(element : Int, name : Array[Byte]) : Int = {
+    var attribute = elements(element * ElementStride + FirstAttribute)
+    val last = elements((element + 1) * ElementStride + FirstAttribute)
+    while (attribute < last) {
+      if (regionEquals(nameStart(attribute), nameEnd(attribute), name, 0, name.length)) {
+        return attribute
+      }
+      attribute += 1
+    }
+    -1
+  }
+
+  /** the first attribute with local name "name" and any prefix */
+  private def findName(element : Int) : Int = findLocal(element, NameSuffix)
+
+  /** the first attribute with the given ":" and local name and any prefix */
+  private def findLocal(element : Int, suffix : Array[Byte]) : Int = {
+    var attribute = elements(element * ElementStride + FirstAttribute)
+    val last = elements((element + 1) * ElementStride + FirstAttribute)
+    while (attribute < last) {
+      val end = nameEnd(attribute)
+      if (end - nameStart(attribute) > suffix.length
+          && regionEquals(end - suffix.length, end, suffix, 0, suffix.length)) {
+        return attribute
+      }
+      attribute += 1
+    }
+    -1
+  }
+
+  private def localSuffix(localName : String) : Array[Byte] = (":" + localName).getBytes("UTF-8")
+
+  private def nameStart(attribute : Int) : Int = attributes(attribute * AttributeStride + AttributeNameStart)
+
+  private def nameEnd(attribute : Int) : Int = attributes(attribute * AttributeStride + AttributeNameEnd)
+
+  private def valueStart(attribute : Int) : Int = attributes(attribute * AttributeStride + AttributeValueStart)
+
+  private def valueEnd(attribute : Int) : Int = attributes(attribute * AttributeStride + AttributeValueEnd)
+
+  private def valueEquals(attribute : Int, value : Array[Byte]) : Boolean = {
+    attribute >= 0 && regionEquals(valueStart(attribute), valueEnd(attribute), value, 0, value.length)
+  }
+
+  /**
+   * prefix of the qualified name of a name attribute: none, the package,
+   * or the package and a dot
+   */
+  private def qualifier(attribute : Int) : Int = {
+    val start = valueStart(attribute)
+    val end = valueEnd(attribute)
+    if (end > start && bytes(start) == Dot) {
+      PackagePrefix
+    } else if (indexOf(Dot, start, end) < 0) {
+      PackageDotPrefix
+    } else {
+      NoPrefix
+    }
+  }
+
+  private def qualifiedHash(attribute : Int) : Int = {
+    var h = 0
+    val prefix = qualifier(attribute)
+    if (prefix != NoPrefix) {
+      h = hash(packageBytes, 0, packageBytes.length, h)
+    }
+    if (prefix == PackageDotPrefix) {
+      h = 31 * h + Dot
+    }
+    mix(hash(bytes, valueStart(attribute), valueEnd(attribute), h))
+  }
+
+  private def qualifiedNameEquals(attribute : Int, qualified : Array[Byte]) : Boolean = {
+    if (attribute < 0) {
+      return false
+    }
+    val prefix = qualifier(attribute)
+    var offset = 0
+    if (prefix != NoPrefix) {
+      if (!startsWith(qualified, offset, packageBytes)) {
+        return false
+      }
+      offset += packageBytes.length
+    }
+    if (prefix == PackageDotPrefix) {
+      if (offset >= qualified.length || qualified(offset) != Dot) {
+        return false
+      }
+      offset += 1
+    }
+    regionEquals(valueStart(attribute), valueEnd(attribute), qualified, offset, qualified.length - offset)
+  }
+
+  private def startsWith(array : Array[Byte], offset : Int, prefix : Array[Byte]) : Boolean = {
+    if (offset + prefix.length > array.length) {
+      return false
+    }
+    var i = 0
+    while (i < prefix.length) {
+      if (array(offset + i) != prefix(i)) {
+        return false
+      }
+      i += 1
+    }
+    true
+  }
+
+  private def regionEquals(start : Int, end : Int, other : Array[Byte], offset : Int, count : Int) : Boolean = {
+    if (end - start != count) {
+      return false
+    }
+    var i = 0
+    while (i < count) {
+      if (bytes(start + i) != other(offset + i)) {
+        return false
+      }
+      i += 1
+    }
+    true
+  }
+
+  private def indexOf(b : Byte, start : Int, end : Int) : Int = {
+    var i = start
+    while (i < end) {
+      if (bytes(i) == b) {
+        return i
+      }
+      i += 1
+    }
+    -1
+  }
+
+  private def copy(start : Int, end : Int) : Array[Byte] = {
+    val result = new Array[Byte](end - start)
+    System.arraycopy(bytes, start, result, 0, result.length)
+    result
+  }
+
+  /** decode the predefined entities and character references */
+  private def decode(start : Int, end : Int) : String = {
+    val raw = new String(bytes, start, end - start, "UTF-8")
+    if (raw.indexOf('&') < 0) {
+      return raw
+    }
+    val sb = new StringBuilder
+    var i = 0
+    while (i < raw.length) {
+      val c = raw.charAt(i)
+      val semicolon = if (c == '&') raw.indexOf(';', i) else -1
+      if (semicolon < 0) {
+        sb.append(c)
+        i += 1
+      } else {
+        val entity = raw.substring(i + 1, semicolon)
+        entity match {
+          case "amp" => sb.append('&')
+          case "lt" => sb.append('<')
+          case "gt" => sb.append('>')
+          case "quot" => sb.append('"')
+          case "apos" => sb.append('\'')
+          case _ if entity.startsWith("#x") => sb.append(Integer.parseInt(entity.substring(2), 16).toChar)
+          case _ if entity.startsWith("#") => sb.append(Integer.parseInt(entity.substring(1)).toChar)
+          case _ => sb.append(raw.substring(i, semicolon + 1))
+        }
+        i = semicolon + 1
+      }
+    }
+    sb.toString
+  }
+}
+
+object ManifestTape {
+
+  // element record: offsets of the start tag, the end of its name, the end
+  // tag and the end of the element, the parent and the first attribute.
+  // A sentinel record after the last element holds the attribute count.
+  private val ElementStride = 6
+  private val Start = 0
+  private val NameEnd = 1
+  private val CloseStart = 2
+  private val End = 3
+  private val Parent = 4
+  private val FirstAttribute = 5
+
+  // attribute record: offsets of the name and of the value without quotes
+  private val AttributeStride = 4
+  private val AttributeNameStart = 0
+  private val AttributeNameEnd = 1
+  private val AttributeValueStart = 2
+  private val AttributeValueEnd = 3
+
+  private val NoPrefix = 0
+  private val PackagePrefix = 1
+  private val PackageDotPrefix = 2
+
+  private val Dot = '.'.toByte
+  private val PackageAttribute = "package".getBytes("UTF-8")
+  private val NameSuffix = ":name".getBytes("UTF-8")
+  private val ApplicationLabel = "application".getBytes("UTF-8")
+  private val ActivityLabel = "activity".getBytes("UTF-8")
+  private val IntentFilterLabel = "intent-filter".getBytes("UTF-8")
+  private val ActionLabel = "action".getBytes("UTF-8")
+  private val CategoryLabel = "category".getBytes("UTF-8")
+  private val ComponentLabels = ManifestIndex.ComponentKinds.map(_.getBytes("UTF-8")).toArray
+
+  /**
+   * read the given manifest file
+   * @param file manifest file
+   * @return tape of the file
+   */
+  @throws(classOf[IOException])
+  def load(file : File) : ManifestTape = {
+    val in = new FileInputStream(file)
+    try {
+      val bytes = new Array[Byte](file.length.toInt)
+      var offset = 0
+      var read = 0
+      while (offset < bytes.length && read >= 0) {
+        read = in.read(bytes, offset, bytes.length - offset)
+        if (read > 0) offset += read
+      }
+      new ManifestTape(bytes, offset)
+    } finally {
+      in.close()
+    }
+  }
+
+  /**
+   * parse a manifest from a string
+   * @param xml manifest content
+   * @return tape of the content
+   */
+  @throws(classOf[IOException])
+  def fromString(xml : String) : ManifestTape = {
+    val bytes = xml.getBytes("UTF-8")
+    new ManifestTape(bytes, bytes.length)
+  }
+
+  private def hash(array : Array[Byte], start : Int, end : Int, seed : Int) : Int = {
+    var h = seed
+    var i = start
+    while (i < end) {
+      h = 31 * h + array(i)
+      i += 1
+    }
+    h
+  }
+
+  private def mix(h : Int) : Int = h ^ (h >>> 16)
+
+  /**
+   * growable int array
+   */
+  private class IntBuffer(capacity : Int) {
+    var data = new Array[Int](capacity)
+    var size = 0
+
+    def add(value : Int) {
+      if (size == data.length) {
+        val grown = new Array[Int](data.length * 2)
+        System.arraycopy(data, 0, grown, 0, size)
+        data = grown
+      }
+      data(size) = value
+      size += 1
+    }
+
+    def toArray : Array[Int] = {
+      val result = new Array[Int](size)
+      System.arraycopy(data, 0, result, 0, size)
+      result
+    }
+  }
+
+  private val Lt = '<'.toByte
+  private val Gt = '>'.toByte
+  private val Slash = '/'.toByte
+  private val Eq = '='.toByte
+  private val Quote = '"'.toByte
+  private val Apostrophe = '\''.toByte
+  private val Space = ' '.toByte
+  private val Tab = '\t'.toByte
+  private val Cr = '\r'.toByte
+  private val Lf = '\n'.toByte
+  private val CommentStart = "<!--".getBytes("UTF-8")
+  private val CommentEnd = "-->".getBytes("UTF-8")
+  private val CDataStart = "<![CDATA[".getBytes("UTF-8")
+  private val CDataEnd = "]]>".getBytes("UTF-8")
+  private val PIStart = "<?".getBytes("UTF-8")
+  private val PIEnd = "?>".getBytes("UTF-8")
+  private val DeclarationStart = "<!".getBytes("UTF-8")
+  private val DeclarationEnd = ">".getBytes("UTF-8")
+
+  /**
+   * one pass over the bytes, recording elements and attributes
+   */
+  private class Scanner(bytes : Array[Byte], length : Int) {
+    private val elements = new IntBuffer(Math.max(64, length / 16))
+    private val attributes = new IntBuffer(Math.max(64, length / 16))
+    private val open = new IntBuffer(16)
+    private var attributeCount = 0
+    private var i = 0
+
+    def scan() : (Array[Int], Array[Int]) = {
+      while (i < length) {
+        if (bytes(i) != Lt) {
+          i += 1
+        } else if (matches(CommentStart)) {
+          skipPast(CommentStart.length, CommentEnd)
+        } else if (matches(CDataStart)) {
+          skipPast(CDataStart.length, CDataEnd)
+        } else if (matches(PIStart)) {
+          skipPast(PIStart.length, PIEnd)
+        } else if (matches(DeclarationStart)) {
+          skipPast(DeclarationStart.length, DeclarationEnd)
+        } else if (i + 1 < length && bytes(i + 1) == Slash) {
+          endTag()
+        } else {
+          startTag()
+        }
+      }
+      if (open.size > 0) {
+        throw new IOException("Unclosed element at offset " + elements.data(open.data(open.size - 1) * ElementStride))
+      }
+      // sentinel holding the end of the attributes of the last element
+      for (field <- 0 until ElementStride) {
+        elements.add(if (field == FirstAttribute) attributeCount else -1)
+      }
+      (elements.toArray, attributes.toArray)
+    }
+
+    private def startTag() {
+      val element = elements.size / ElementStride
+      val start = i
+      i += 1
+      skipName()
+      elements.add(start)
+      elements.add(i)
+      elements.add(-1)
+      elements.add(-1)
+      elements.add(if (open.size > 0) open.data(open.size - 1) else -1)
+      elements.add(attributeCount)
+      while (true) {
+        skipWhitespace()
+        if (i >= length) {
+          throw new IOException("Unterminated start tag at offset " + start)
+        }
+        if (bytes(i) == Gt) {
+          i += 1
+          open.add(element)
+          return
+        }
+        if (bytes(i) == Slash) {
+          elements.data(element * ElementStride + CloseStart) = i
+          i = skipTo(Gt) + 1
+          elements.data(element * ElementStride + End) = i
+          return
+        }
+        attribute(start)
+      }
+    }
+
+    private def attribute(tagStart : Int) {
+      val nameStart = i
+      skipName()
+      val nameEnd = i
+      skipWhitespace()
+      if (i >= length || bytes(i) != Eq || nameEnd == nameStart) {
+        throw new IOException("Malformed attribute in tag at offset " + tagStart)
+      }
+      i += 1
+      skipWhitespace()
+      if (i >= length || (bytes(i) != Quote && bytes(i) != Apostrophe)) {
+        throw new IOException("Unquoted attribute value in tag at offset " + tagStart)
+      }
+      val quote = bytes(i)
+      val valueStart = i + 1
+      i = valueStart
+      val valueEnd = skipTo(quote)
+      i = valueEnd + 1
+      attributes.add(nameStart)
+      attributes.add(nameEnd)
+      attributes.add(valueStart)
+      attributes.add(valueEnd)
+      attributeCount += 1
+    }
+
+    private def endTag() {
+      if (open.size == 0) {
+        throw new IOException("Unexpected end tag at offset " + i)
+      }
+      open.size -= 1
+      val element = open.data(open.size)
+      elements.data(element * ElementStride + CloseStart) = i
+      i = skipTo(Gt) + 1
+      elements.data(element * ElementStride + End) = i
+    }
+
+    private def skipName() {
+      while (i < length && !isWhitespace(bytes(i)) && bytes(i) != Gt && bytes(i) != Slash && bytes(i) != Eq) {
+        i += 1
+      }
+    }
+
+    private def skipWhitespace() {
+      while (i < length && isWhitespace(bytes(i))) {
+        i += 1
+      }
+    }
+
+    /** offset of the next b, the scan position is not changed */
+    private def skipTo(b : Byte) : Int = {
+      var j = i
+      while (j < length && bytes(j) != b) {
+        j += 1
+      }
+      if (j >= length) {
+        throw new IOException("Unexpected end of manifest")
+      }
+      j
+    }
+
+    private def isWhitespace(b : Byte) : Boolean = b == Space || b == Tab || b == Cr || b == Lf
+
+    private def matches(pattern : Array[Byte]) : Boolean = {
+      if (i + pattern.length > length) {
+        return false
+      }
+      var j = 0
+      while (j < pattern.length) {
+        if (bytes(i + j) != pattern(j)) {
+          return false
+        }
+        j += 1
+      }
+      true
+    }
+
+    private def skipPast(offset : Int, pattern : Array[Byte]) {
+      i += offset
+      while (i < length && !matches(pattern)) {
+        i += 1
+      }
+      i = Math.min(length, i + pattern.length)
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.jayway.eclipse.adt.xml
+
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.RandomAccessFile
+
+ /**
+  * ManifestWriter.
+  * Writes manifest content only if it differs from the file, so saves
+  * without changes do not touch the file and trigger no builds. Changed
+  * content is written to a temporary file that replaces the manifest by
+  * rename, where the platform can not rename over an existing file only
+  * the changed bytes are written in place.
+  */
+object ManifestWriter {
+
+  /**
+   * write the given content to the file if it differs from the current content
+   * @param file manifest file
+   * @param bytes new content
+   * @param length number of valid bytes
+   * @return true if the file was written
+   */
+  @throws(classOf[IOException])
+  def write(file : File, bytes : Array[Byte], length : Int) : Boolean = {
+    val old = if (file.exists) read(file) else new Array[Byte](0)
+    val first = firstDifference(old, bytes, length)
+    if (first == length && old.length == length) {
+      return false
+    }
+    val temp = File.createTempFile(file.getName, ".tmp", file.getAbsoluteFile.getParentFile)
+    try {
+      val out = new FileOutputStream(temp)
+      try {
+        out.write(bytes, 0, length)
+        out.getFD.sync()
+      } finally {
+        out.close()
+      }
+      if (!temp.renameTo(file)) {
+        writeChanges(file, old, first, bytes, length)
+      }
+    } finally {
+      temp.delete()
+    }
+    true
+  }
+
+  /**
+   * @return index of the first byte that differs, or the length of the shorter content
+   */
+  private def firstDifference(old : Array[Byte], bytes : Array[Byte], length : Int) : Int = {
+    val end = Math.min(old.length, length)
+    var i = 0
+    while (i < end && old(i) == bytes(i)) {
+      i += 1
+    }
+    i
+  }
+
+  /**
+   * write the bytes from the first difference on, or only up to the last
+   * difference if the length is unchanged
+   */
+  private def writeChanges(file : File, old : Array[Byte], first : Int, bytes : Array[Byte], length : Int) {
+    var last = length
+    if (old.length == length) {
+      while (last > first && old(last - 1) == bytes(last - 1)) {
+        last -= 1
+      }
+    }
+    val raf = new RandomAccessFile(file, "rw")
+    try {
+      raf.seek(first)
+      raf.write(bytes, first, last - first)
+      raf.setLength(length)
+    } finally {
+      raf.close()
+    }
+  }
+
+  private def read(file : File) : Array[Byte] = {
+    val raf = new RandomAccessFile(file, "r")
+    try {
+      val bytes = new Array[Byte](raf.length.toInt)
+      raf.readFully(bytes)
+      bytes
+    } finally {
+      raf.close()
+    }
+  }
+}